@@ -0,0 +1,110 @@
+package com.rfe.graphcomponent;
+
+import com.rfe.graphcomponent.core.PreparedSeries;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, versioned snapshot of the series of a {@link GraphComponent} and the data
+ * published for each of them. Producers on any thread derive a new state from the current one
+ * and swap it in with a compare-and-set; the UI thread applies every new version to its layers
+ * before they are drawn.
+ * <p>
+ * Each series remembers the ticket of the data it holds. Data carrying an older ticket than the
+ * current one was superseded by a later call and is not taken over.
+ */
+final class ChartState {
+
+    static final ChartState EMPTY = new ChartState(0, new SeriesLayer[0], new PreparedSeries[0],
+            new long[0]);
+
+    private final long mVersion;
+    private final SeriesLayer[] mLayers;
+    private final PreparedSeries[] mData;
+    private final long[] mTickets;
+
+    private ChartState(long version, SeriesLayer[] layers, PreparedSeries[] data, long[] tickets) {
+        mVersion = version;
+        mLayers = layers;
+        mData = data;
+        mTickets = tickets;
+    }
+
+    long getVersion() {
+        return mVersion;
+    }
+
+    int size() {
+        return mLayers.length;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if there is no series {@code series}
+     */
+    SeriesLayer getLayer(int series) {
+        if (series < 0 || series >= mLayers.length)
+            throw new IndexOutOfBoundsException("no series " + series);
+        return mLayers[series];
+    }
+
+    /**
+     * Returns the data last published for a series, or null if it has none or went live.
+     */
+    PreparedSeries getData(int series) {
+        return mData[series];
+    }
+
+    private int indexOf(SeriesLayer layer) {
+        for (int i = 0; i < mLayers.length; i++) {
+            if (mLayers[i] == layer)
+                return i;
+        }
+        return -1;
+    }
+
+    ChartState withLayer(SeriesLayer layer) {
+        int count = mLayers.length;
+        SeriesLayer[] layers = Arrays.copyOf(mLayers, count + 1);
+        PreparedSeries[] data = Arrays.copyOf(mData, count + 1);
+        long[] tickets = Arrays.copyOf(mTickets, count + 1);
+        layers[count] = layer;
+        return new ChartState(mVersion + 1, layers, data, tickets);
+    }
+
+    /**
+     * Returns this state without the series, or this state itself if it does not hold it.
+     */
+    ChartState withoutLayer(SeriesLayer layer) {
+        int index = indexOf(layer);
+        if (index < 0)
+            return this;
+        int count = mLayers.length - 1;
+        SeriesLayer[] layers = new SeriesLayer[count];
+        PreparedSeries[] data = new PreparedSeries[count];
+        long[] tickets = new long[count];
+        System.arraycopy(mLayers, 0, layers, 0, index);
+        System.arraycopy(mData, 0, data, 0, index);
+        System.arraycopy(mTickets, 0, tickets, 0, index);
+        System.arraycopy(mLayers, index + 1, layers, index, count - index);
+        System.arraycopy(mData, index + 1, data, index, count - index);
+        System.arraycopy(mTickets, index + 1, tickets, index, count - index);
+        return new ChartState(mVersion + 1, layers, data, tickets);
+    }
+
+    /**
+     * Returns this state with new data for a series, or this state itself if the series was
+     * removed or already holds data with a later ticket.
+     *
+     * @param data the new data, or null for a series that receives live samples instead
+     */
+    ChartState withData(SeriesLayer layer, PreparedSeries data, long ticket) {
+        int index = indexOf(layer);
+        if (index < 0 || ticket <= mTickets[index])
+            return this;
+        PreparedSeries[] newData = mData.clone();
+        long[] tickets = mTickets.clone();
+        newData[index] = data;
+        tickets[index] = ticket;
+        return new ChartState(mVersion + 1, mLayers, newData, tickets);
+    }
+}
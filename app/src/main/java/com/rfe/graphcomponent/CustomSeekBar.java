@@ -7,13 +7,23 @@ import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.util.Arrays;
-
+/**
+ * A horizontal bar with a draggable thumb and a vertical line marking its position. The
+ * progress counts pixels along the bar, so the maximum follows the width of the view.
+ * <p>
+ * Drag events are coalesced: the thumb follows the latest touch position once per display
+ * frame, and the listener is told about a user change at most once per frame. With a
+ * {@link ProgressSnapper} the thumb snaps while it is dragged.
+ */
 public class CustomSeekBar extends ProgressBar {
 
     public interface OnSeekBarChangeListener {
@@ -30,7 +40,16 @@ public class CustomSeekBar extends ProgressBar {
         void onProgressChanged(CustomSeekBar seekBar, int progress, boolean fromUser);
     }
 
+    public interface ProgressSnapper {
+
+        /**
+         * Returns the progress the thumb snaps to when dragged to {@code progress}.
+         */
+        int snap(int progress);
+    }
+
     private OnSeekBarChangeListener onSeekBarChangeListener;
+    private ProgressSnapper progressSnapper = null;
     private int barWidth;
     private Paint paint = null;
     private final int BAR_HEIGHT = 2;
@@ -41,16 +60,28 @@ public class CustomSeekBar extends ProgressBar {
     private boolean isDragging = false;
     private int thumbOffset;
     private float scale;
-    private int[] progressPoints;
-    private boolean isCustomPointsMode = false;
+    // Thumb position restored before the bar was laid out, as a fraction of the bar.
+    private float restoredFraction = Float.NaN;
 
+    // Frame interval assumed before Choreographer, which arrived in API 16.
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    // Latest touch position not yet applied to the thumb.
+    private float pendingTouchX;
+    private boolean isFrameScheduled = false;
+    private Object frameCallback = null;
+    private final Runnable frameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onFrame();
+        }
+    };
 
     public CustomSeekBar(Context context) {
         super(context, null, android.R.attr.progressBarStyleHorizontal);
 
         setProgressDrawable(getResources().getDrawable(android.R.drawable.progress_horizontal));
         thumb = getResources().getDrawable(R.drawable.abc_btn_radio_material);
-        setMax(1000);
 
         barBounds = new Rect();
         paint = new Paint();
@@ -63,7 +94,8 @@ public class CustomSeekBar extends ProgressBar {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        setProgress(0);
+        int oldMax = getMax();
+        int progress = getProgress();
 
         barBounds.left = getPaddingLeft() + THUMB_HEIGHT / 2;
         barBounds.right = getPaddingLeft() + getWidth() + getPaddingRight() - THUMB_HEIGHT / 2;
@@ -71,7 +103,16 @@ public class CustomSeekBar extends ProgressBar {
         barBounds.bottom = barBounds.top + BAR_HEIGHT;
 
         barWidth = barBounds.right - barBounds.left;
+        // One progress step per pixel; the thumb keeps its relative position.
+        setMax(Math.max(barWidth, 1));
         scale = ((float) barWidth) / getMax();
+        if (!Float.isNaN(restoredFraction)) {
+            setProgress(Math.round(restoredFraction * getMax()));
+            restoredFraction = Float.NaN;
+        } else {
+            setProgress(Math.round((float) progress * getMax() / oldMax));
+        }
+        thumbPosition.x = barBounds.left + (int) (scale * getProgress());
 
         Drawable progressDrawable = getProgressDrawable();
 
@@ -82,17 +123,36 @@ public class CustomSeekBar extends ProgressBar {
         return THUMB_HEIGHT;
     }
 
-    public void setCustomPointsMode(boolean b) {
-        isCustomPointsMode = b;
+    public boolean isThumbDragging() {
+        return isDragging;
+    }
+
+    /**
+     * Sets what the thumb snaps to while it is dragged, or lets it move freely if null.
+     */
+    public void setProgressSnapper(ProgressSnapper snapper) {
+        progressSnapper = snapper;
     }
 
-    public void setProgressPoints(int[] a) {
-        if (isCustomPointsMode)
-            progressPoints = Arrays.copyOf(a, a.length);
+    /**
+     * Moves the thumb to {@code progress} without notifying the listener. Ignored while the
+     * user drags the thumb.
+     */
+    public void setThumbProgress(int progress) {
+        if (isDragging)
+            return;
+        progress = Math.max(0, Math.min(progress, getMax()));
+        int x = barBounds.left + (int) (scale * progress);
+        if (progress != getProgress())
+            setProgress(progress);
+        if (x != thumbPosition.x) {
+            thumbPosition.x = x;
+            invalidate();
+        }
     }
 
     @Override
-    protected synchronized void onDraw(Canvas canvas) {
+    protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         drawLine(canvas);
         thumb.setBounds(thumbPosition.x - thumbOffset, thumbPosition.y - thumbOffset,
@@ -116,20 +176,22 @@ public class CustomSeekBar extends ProgressBar {
                 break;
             case MotionEvent.ACTION_MOVE:
                 if (isDragging) {
-                    setNewThumbPosition(event);
-                    if (onSeekBarChangeListener != null && !isCustomPointsMode)
-                        onSeekBarChangeListener.onProgressChanged(this, getProgress(), true);
+                    // A batched event carries older samples in its history, but only where the
+                    // finger is now matters for the next frame.
+                    pendingTouchX = event.getX();
+                    scheduleFrame();
                 }
                 break;
             case MotionEvent.ACTION_UP:
-                if (isCustomPointsMode && isDragging) {
-                    setFinalThumbPosition(event);
-                    if (onSeekBarChangeListener != null)
-                        onSeekBarChangeListener.onProgressChanged(this, getProgress(), true);
+                if (isDragging) {
+                    cancelFrame();
+                    pendingTouchX = event.getX();
+                    applyPendingTouch();
                 }
                 isDragging = false;
                 break;
             case MotionEvent.ACTION_CANCEL:
+                cancelFrame();
                 isDragging = false;
                 break;
         }
@@ -140,26 +202,122 @@ public class CustomSeekBar extends ProgressBar {
         onSeekBarChangeListener = l;
     }
 
-    private void setFinalThumbPosition(MotionEvent event) {
-        int progress = Math.round((event.getX() - barBounds.left) / scale);
-        progress = findNearestPoint(progress);
-        thumbPosition.x = barBounds.left + (int) (scale * progress);
-        setProgress(progress);
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelFrame();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Saves the thumb position as a fraction of the bar, which stays valid when the bar is laid
+     * out with another width.
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.thumbFraction = (float) getProgress() / getMax();
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState saved = (SavedState) state;
+        super.onRestoreInstanceState(saved.getSuperState());
+        if (barWidth > 0)
+            setThumbProgress(Math.round(saved.thumbFraction * getMax()));
+        else
+            restoredFraction = saved.thumbFraction;
+    }
+
+    static class SavedState extends BaseSavedState {
+
+        float thumbFraction;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            thumbFraction = in.readFloat();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeFloat(thumbFraction);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in) {
+                        return new SavedState(in);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
     }
 
-    private void setNewThumbPosition(MotionEvent event) {
-        if (event.getX() < barBounds.right && event.getX() > barBounds.left) {
-            thumbPosition.x = barBounds.left + (int) (Math.round((event.getX()
-                    - barBounds.left) / scale) * scale);
-            setProgress(Math.round((event.getX() - barBounds.left) / scale));
-        } else if (event.getX() < barBounds.left) {
-            thumbPosition.x = barBounds.left;
-            setProgress(0);
+    private void scheduleFrame() {
+        if (isFrameScheduled)
+            return;
+        isFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (frameCallback == null)
+                frameCallback = FrameCallbacks.create(frameRunnable);
+            FrameCallbacks.post(frameCallback);
         } else {
-            thumbPosition.x = barBounds.right;
-            setProgress(getMax());
+            postDelayed(frameRunnable, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    private void cancelFrame() {
+        if (!isFrameScheduled)
+            return;
+        isFrameScheduled = false;
+        if (frameCallback != null)
+            FrameCallbacks.remove(frameCallback);
+        else
+            removeCallbacks(frameRunnable);
+    }
+
+    private void onFrame() {
+        if (!isFrameScheduled)
+            return;
+        isFrameScheduled = false;
+        if (isDragging)
+            applyPendingTouch();
+    }
+
+    /**
+     * Moves the thumb to the progress under the latest touch position, snapped if a snapper is
+     * set, and notifies the listener if the progress changed.
+     */
+    private void applyPendingTouch() {
+        int progress = Math.round((pendingTouchX - barBounds.left) / scale);
+        progress = Math.max(0, Math.min(progress, getMax()));
+        if (progressSnapper != null)
+            progress = Math.max(0, Math.min(progressSnapper.snap(progress), getMax()));
+
+        int x = barBounds.left + (int) (scale * progress);
+        boolean changed = progress != getProgress();
+        if (x != thumbPosition.x) {
+            thumbPosition.x = x;
+            invalidate();
+        }
+        if (changed) {
+            setProgress(progress);
+            if (onSeekBarChangeListener != null)
+                onSeekBarChangeListener.onProgressChanged(this, progress, true);
         }
-        invalidate();
     }
 
     private boolean touchTheThumb(MotionEvent event) {
@@ -168,21 +326,26 @@ public class CustomSeekBar extends ProgressBar {
         return deltaX * deltaX + deltaY * deltaY < thumbOffset * thumbOffset;
     }
 
-    private int findNearestPoint(int key) {
-        int lo = 0;
-        int hi = progressPoints.length - 1;
-        int point = progressPoints[0];
-        while (lo <= hi) {
-            int mid = lo + (hi - lo) / 2;
-            if (Math.abs(progressPoints[mid] - key) < Math.abs(key - point))
-                point = progressPoints[mid];
-
-            if (key < progressPoints[mid]) {
-                hi = mid - 1;
-            } else if (key > progressPoints[mid]) {
-                lo = mid + 1;
-            } else return point;
+    /**
+     * Choreographer access kept out of CustomSeekBar itself, so older platforms never load it.
+     */
+    private static final class FrameCallbacks {
+
+        static Object create(final Runnable runnable) {
+            return new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    runnable.run();
+                }
+            };
+        }
+
+        static void post(Object callback) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+        }
+
+        static void remove(Object callback) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
         }
-        return point;
     }
-}
\ No newline at end of file
+}
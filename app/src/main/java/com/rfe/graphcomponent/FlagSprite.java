@@ -0,0 +1,105 @@
+package com.rfe.graphcomponent;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.rfe.graphcomponent.core.FlagLayout;
+
+/**
+ * The body of the selection flag with its drop shadow, rendered once into a bitmap and blitted
+ * until the flag's size, direction or colors change. A shadow layer drawn directly forces a
+ * slow path under hardware acceleration; a bitmap is drawn natively.
+ */
+final class FlagSprite {
+
+    private static final float SHADOW_RADIUS = 4;
+    private static final float SHADOW_OFFSET = 5;
+    private static final int PADDING = (int) Math.ceil(SHADOW_RADIUS + SHADOW_OFFSET);
+
+    private final Paint mPaint = new Paint();
+    private final Path mPath = new Path();
+    private final float[] mOutline = new float[FlagLayout.OUTLINE_SIZE];
+    private Bitmap mBitmap = null;
+    private float mAnchorX, mAnchorY;
+
+    private int mWidth, mPoleHeight, mFlagHeight, mColor;
+    private float mStrokeWidth;
+
+    /**
+     * Builds the flag outline; see {@link FlagLayout#outline} for the parameters.
+     */
+    private void buildPath(float x, float y, float h1, float h2, float w) {
+        FlagLayout.outline(x, y, h1, h2, w, mOutline);
+        mPath.rewind();
+        mPath.moveTo(mOutline[0], mOutline[1]);
+        for (int i = 2; i < FlagLayout.OUTLINE_SIZE; i += 2)
+            mPath.lineTo(mOutline[i], mOutline[i + 1]);
+        mPath.close();
+    }
+
+    /**
+     * Draws the flag anchored at {@code (x, y)}; see {@link FlagLayout#outline} for the other
+     * parameters. The bitmap is rebuilt only if the rounded size or the style changed.
+     *
+     * @return true if the bitmap had to be rebuilt
+     */
+    boolean draw(Canvas canvas, float x, float y, float h1, float h2, float w, int color,
+                 float strokeWidth) {
+        int width = Math.round(w);
+        int poleHeight = Math.round(h1);
+        int flagHeight = Math.round(h2);
+        boolean stale = mBitmap == null || width != mWidth || poleHeight != mPoleHeight
+                || flagHeight != mFlagHeight || color != mColor || strokeWidth != mStrokeWidth;
+        if (stale)
+            render(width, poleHeight, flagHeight, color, strokeWidth);
+        canvas.drawBitmap(mBitmap, x - mAnchorX, y - mAnchorY, null);
+        return stale;
+    }
+
+    private void render(int width, int poleHeight, int flagHeight, int color, float strokeWidth) {
+        int stroke = (int) Math.ceil(strokeWidth);
+        int bitmapWidth = Math.abs(width) + 2 * (PADDING + stroke);
+        int bitmapHeight = flagHeight + 2 * (PADDING + stroke);
+        if (mBitmap == null || mBitmap.getWidth() != bitmapWidth
+                || mBitmap.getHeight() != bitmapHeight) {
+            release();
+            mBitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        mAnchorX = PADDING + stroke + (width < 0 ? -width : 0);
+        mAnchorY = PADDING + stroke + flagHeight;
+        buildPath(mAnchorX, mAnchorY, poleHeight, flagHeight, width);
+
+        // A bitmap canvas renders in software, where the shadow layer is cheap.
+        Canvas canvas = new Canvas(mBitmap);
+        mPaint.reset();
+        mPaint.setColor(color);
+        mPaint.setStyle(Paint.Style.FILL);
+        mPaint.setShadowLayer(SHADOW_RADIUS, SHADOW_OFFSET, SHADOW_OFFSET, Color.BLACK);
+        canvas.drawPath(mPath, mPaint);
+        mPaint.setShadowLayer(0, 0, 0, 0);
+
+        mPaint.setColor(Color.BLACK);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeWidth(strokeWidth);
+        canvas.drawPath(mPath, mPaint);
+
+        mWidth = width;
+        mPoleHeight = poleHeight;
+        mFlagHeight = flagHeight;
+        mColor = color;
+        mStrokeWidth = strokeWidth;
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+}
@@ -2,36 +2,203 @@ package com.rfe.graphcomponent;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.PointF;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.widget.RelativeLayout;
 
+import com.rfe.graphcomponent.core.AxisScale;
+import com.rfe.graphcomponent.core.ChartLayout;
+import com.rfe.graphcomponent.core.ChartMetrics;
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.FlagLayout;
+import com.rfe.graphcomponent.core.GridLayout;
+import com.rfe.graphcomponent.core.PreparedSeries;
+import com.rfe.graphcomponent.core.MappedSeries;
+import com.rfe.graphcomponent.core.NearestPoint;
+import com.rfe.graphcomponent.core.Series;
+import com.rfe.graphcomponent.core.SeriesFile;
+import com.rfe.graphcomponent.core.SeriesStore;
+import com.rfe.graphcomponent.core.Viewport;
+
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class GraphComponent extends RelativeLayout implements CustomSeekBar.OnSeekBarChangeListener {
 
-    private float mScaleX, mScaleY;
+    public interface OnDataReadyListener {
+
+        /**
+         * Notification that data passed to
+         * {@link #setDataAsync(int, float[], float[], int, OnDataReadyListener)} or
+         * {@link #openAsync(int, File, OnDataReadyListener)} was prepared and is now shown.
+         * Called on the UI thread; not called for jobs superseded by newer data.
+         *
+         * @param graph The GraphComponent showing the data
+         */
+        void onDataReady(GraphComponent graph);
+    }
+
+    /**
+     * How markers are drawn; see {@link #setMarkerMode(MarkerMode)}.
+     */
+    public enum MarkerMode {
+        /**
+         * All markers of a series in one batch of round points.
+         */
+        POINTS,
+        /**
+         * Circles rasterized once per color and size and drawn at the samples in batches of
+         * textured triangles.
+         */
+        SPRITES
+    }
+
+    /**
+     * The most series a chart shows at once.
+     */
+    public static final int MAX_SERIES = 8;
+
+    private static final String TAG = "GraphComponent";
+    private static final float MIN_VISIBLE_FRACTION = 1e-4f;
+    // How long the geometry must stay unchanged before the static layer is rebuilt.
+    private static final long STATIC_LAYER_IDLE_MS = 250;
+
+    private static final ExecutorService sPrepareExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "GraphComponent-prepare");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    private final Viewport mViewport = new Viewport();
     private Context mContext = null;
     private float mTextSize;
-    private float mTickSize;
-    private int mStrokeColor, mAreaColor, mTextColor, mGridColor, mFlagColor, mBackColor;
-    private int mBarWidth, mBarHeight;
+    private int mTextColor, mGridColor, mFlagColor, mBackColor;
+    private volatile int mBarWidth;
+    private int mBarHeight;
     private float mLowerBound, mUpperBound;
     private final float markerRadius = 5;
     private float mStrokeWidth = 3;
-    private int mProgress = 0;
 
     private CustomSeekBar mCustomSeekBar = null;
     Paint paint = new Paint();
-    private ArrayList<PointF> mOriginalData = null;
+    // Series share the axes. The first one is the primary series: the seek bar, the flag and
+    // live data belong to it, and the y axis is labelled in its unit.
+    private final ArrayList<SeriesLayer> mLayers = new ArrayList<>();
+    private final SeriesLayer mPrimary;
+    private volatile Decimator.Mode mDecimationMode = Decimator.Mode.LTTB;
+    // Merged corners of all series: [0] = (min x, max y), [1] = (max x, min y).
     private PointF[] mCornerPoints = new PointF[2];
-    private int mRangeOfProgress = 1000;
+    // The selection as an x value, NaN for the first visible sample, and the selectable
+    // decimated sample of the primary series closest to it.
+    private float mSelectedX = Float.NaN;
+    private int mSelectedIndex = -1;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // The series and the data published for them. Producers on any thread swap in a new state;
+    // the UI thread applies each version in sync(), and draws only what it derived from it.
+    private final AtomicReference<ChartState> mState = new AtomicReference<>(ChartState.EMPTY);
+    private final AtomicLong mTickets = new AtomicLong();
+    private long mAppliedVersion = 0;
+    // Samples appended off the UI thread as interleaved x/y pairs, drained by sync().
+    private final ConcurrentLinkedQueue<float[]> mAppendQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mSyncScheduled = new AtomicBoolean();
+    private final Runnable mSyncRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sync();
+        }
+    };
+
+    // Streaming state, used after setStreaming() until the next setData().
+    private volatile boolean mStreaming = false;
+    private SeriesStore mStream = null;
+    private float mStreamWindow = 0;
+    private boolean mFollowNewest = true;
+    private boolean mStreamLayoutChanged = false;
+    private boolean mDataDirty = false;
+
+    // Zoomed x range; the whole data range is shown while mZoomed is false.
+    private boolean mZoomed = false;
+    private float mVisibleMinX, mVisibleMaxX;
+    // A zoomed range restored before the data arrived, applied once the primary series has it.
+    private float mRestoredMinX = Float.NaN, mRestoredMaxX = Float.NaN;
+    private final int[] mVisibleMinMax = new int[2];
+    private final ScaleGestureDetector mScaleDetector;
+    private final GestureDetector mGestureDetector;
+    private boolean mViewportGesture = false;
+
+    // Set when the axes or the size change, so every layer and the grid are rebuilt. A layer
+    // whose own data changed marks only itself.
+    private boolean mGeometryDirty = true;
+
+    // Grid, labels, area, polyline and markers, rasterized in software into this bitmap only
+    // when the geometry changes; other frames just draw the bitmap. While the geometry changes
+    // frame after frame, as when streaming, panning or zooming, they are drawn straight to the
+    // view canvas instead, and the bitmap is rebuilt once the geometry stays put.
+    private Bitmap mStaticLayer = null;
+    private final Canvas mStaticCanvas = new Canvas();
+    private boolean mStaticLayerDirty = true;
+    private long mGeometryChangedAt = 0;
+    private final Runnable mStaticLayerIdleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            invalidate();
+        }
+    };
+
+    // Axis ticks and their cached labels. The x axis ticks are drawn only if enabled.
+    private final AxisScale mYAxis = new AxisScale(true);
+    private final AxisScale mXAxis = new AxisScale(false);
+    private boolean mXAxisVisible = false;
+    private String mXAxisUnit = "";
+
+    // Grid lines as drawLines segments and label positions for plain drawText, laid out once
+    // per geometry change instead of building a path for every label on every redraw.
+    private final GridLayout mGrid = new GridLayout();
+
+    private final FlagSprite mFlagSprite = new FlagSprite();
+    private final FlagLayout mFlag = new FlagLayout();
+    private int mFlagIndex = -1;
+    private String mFlagText = null;
+
+    private float mMarkerRadiusPx, mGridWidthPx, mFlagStrokeWidthPx;
+
+    private MarkerMode mMarkerMode = MarkerMode.POINTS;
+    // NaN while the limit follows the marker size in pixels.
+    private float mMaxMarkerDensity = Float.NaN;
+    private final MarkerSprite mSelectedSprite = new MarkerSprite();
+
+    // Null unless metrics were requested with setMetrics().
+    private volatile ChartMetrics mMetrics = null;
 
     public GraphComponent(Context context, AttributeSet attrs) {
         this(context, attrs, R.attr.CustomPlotStyle);
@@ -47,18 +214,26 @@ public class GraphComponent extends RelativeLayout implements CustomSeekBar.OnSe
         addView(mCustomSeekBar, params);
 
         mCustomSeekBar.setOnSeekBarChangeListener(this);
-        mCustomSeekBar.setMax(1000);
-        mCustomSeekBar.setCustomPointsMode(true);
+        mCustomSeekBar.setProgressSnapper(new CustomSeekBar.ProgressSnapper() {
+            @Override
+            public int snap(int progress) {
+                if (mCornerPoints[0] == null)
+                    return progress;
+                int index = findSelectable(toDataX(progress));
+                return index >= 0 ? toProgress(getSelectableX(index)) : progress;
+            }
+        });
         mBarHeight = mCustomSeekBar.getThumbHeight();
 
         final TypedArray a = getContext().obtainStyledAttributes(
                 attrs, R.styleable.GraphComponent, defStyleAttr, R.style.defaultPlotStyle);
 
         setBackgroundColor(a.getColor(R.styleable.GraphComponent_backgroundColor, 0));
-        mStrokeColor = a.getColor(
-                R.styleable.GraphComponent_strokeColor, 0);
-        mAreaColor = a.getColor(
-                R.styleable.GraphComponent_areaColor, 0);
+        SeriesStyle style = new SeriesStyle(
+                a.getColor(R.styleable.GraphComponent_strokeColor, 0),
+                a.getColor(R.styleable.GraphComponent_areaColor, 0),
+                a.getString(R.styleable.GraphComponent_unit));
+        style.setStrokeWidth(mStrokeWidth);
         mTextColor = a.getColor(
                 R.styleable.GraphComponent_textColor, 0);
         mGridColor = a.getColor(
@@ -67,16 +242,100 @@ public class GraphComponent extends RelativeLayout implements CustomSeekBar.OnSe
                 R.styleable.GraphComponent_flagColor, 0);
 
         a.recycle();
+
+        mPrimary = new SeriesLayer(style);
+        mLayers.add(mPrimary);
+        mState.set(ChartState.EMPTY.withLayer(mPrimary));
+
+        mYAxis.setLabelStyle(new AxisScale.LabelStyle() {
+            @Override
+            public String format(float value, int fractionDigits) {
+                return AxisScale.formatValue(value, fractionDigits, mPrimary.getStyle().getUnit());
+            }
+
+            @Override
+            public float measure(String label) {
+                return measureLabel(label);
+            }
+        });
+        mXAxis.setLabelStyle(new AxisScale.LabelStyle() {
+            @Override
+            public String format(float value, int fractionDigits) {
+                return AxisScale.formatValue(value, fractionDigits, mXAxisUnit);
+            }
+
+            @Override
+            public float measure(String label) {
+                return measureLabel(label);
+            }
+        });
+
+        mMarkerRadiusPx = dpToPixels(markerRadius);
+        mGridWidthPx = dpToPixels(1);
+        mFlagStrokeWidthPx = dpToPixels(2);
+        mPrimary.setStrokeWidthPx(dpToPixels(style.getStrokeWidth()));
+
+        ViewportGestureListener gestureListener = new ViewportGestureListener();
+        mScaleDetector = new ScaleGestureDetector(context, gestureListener);
+        mGestureDetector = new GestureDetector(context, gestureListener);
+    }
+
+    /**
+     * Returns the selectable decimated sample of the primary series closest to {@code x}, or -1
+     * if there is none. The decimated slice reaches one sample past each edge of a zoomed range;
+     * those samples are drawn for the line to the edge but cannot be selected.
+     */
+    private int findSelectable(float x) {
+        if (!mPrimary.hasData())
+            return -1;
+        Series series = mPrimary.getSeries();
+        Decimator decimator = mPrimary.getDecimator();
+        int first = 0;
+        int last = decimator.size();
+        if (last > first && series.getX(decimator.getIndex(first)) < getVisibleMinX())
+            first++;
+        if (last > first && series.getX(decimator.getIndex(last - 1)) > getVisibleMaxX())
+            last--;
+        return NearestPoint.find(series, decimator, first, last, x);
+    }
+
+    private float getSelectableX(int index) {
+        return mPrimary.getSeries().getX(mPrimary.getDecimator().getIndex(index));
     }
 
-    private void setProgressPoints() {
-        int[] a = new int[mOriginalData.size()];
-        for (int i = 0; i < a.length; i++) {
-            int progress = (int) ((mOriginalData.get(i).x - mCornerPoints[0].x) /
-                    (mCornerPoints[1].x - mCornerPoints[0].x) * mRangeOfProgress);
-            a[i] = progress;
+    /**
+     * Resolves the selection again after the decimation or the visible range changed, and puts
+     * the seek bar thumb onto the selected sample.
+     */
+    private void updateSelection() {
+        if (mCornerPoints[0] == null) {
+            mSelectedIndex = -1;
+            return;
         }
-        mCustomSeekBar.setProgressPoints(a);
+        mSelectedIndex = findSelectable(Float.isNaN(mSelectedX) ? getVisibleMinX() : mSelectedX);
+        if (mSelectedIndex >= 0)
+            mCustomSeekBar.setThumbProgress(toProgress(getSelectableX(mSelectedIndex)));
+    }
+
+    /**
+     * Maps an x value onto the seek bar, whose progress counts pixels of the visible range.
+     */
+    private int toProgress(float x) {
+        float minX = getVisibleMinX();
+        return Math.round((x - minX) / (getVisibleMaxX() - minX) * mCustomSeekBar.getMax());
+    }
+
+    private float toDataX(int progress) {
+        float minX = getVisibleMinX();
+        return minX + (getVisibleMaxX() - minX) * progress / mCustomSeekBar.getMax();
+    }
+
+    private float getVisibleMinX() {
+        return mZoomed ? mVisibleMinX : mCornerPoints[0].x;
+    }
+
+    private float getVisibleMaxX() {
+        return mZoomed ? mVisibleMaxX : mCornerPoints[1].x;
     }
 
     float spToPixels(float sp) {
@@ -88,241 +347,1228 @@ public class GraphComponent extends RelativeLayout implements CustomSeekBar.OnSe
     }
 
     private void setScale() {
-        float flagHeight = 3 * mTextSize;
-        mScaleX = ((float) mBarWidth - mBarHeight) / (mCornerPoints[1].x - mCornerPoints[0].x);
-        mScaleY = ((float) getHeight() - getPaddingTop() - getPaddingBottom() - mBarHeight -
-                flagHeight) / (mUpperBound - mLowerBound);
-    }
-
-    private void setCornerPoints() {
-        mCornerPoints[0] = new PointF(mOriginalData.get(0).x, mOriginalData.get(0).y);
-        mCornerPoints[1] = new PointF(mOriginalData.get(mOriginalData.size() - 1).x, mOriginalData.get(0).y);
-        for (PointF p : mOriginalData) {
-            if (p.y > mCornerPoints[0].y)
-                mCornerPoints[0].y = p.y;
-            else if (p.y < mCornerPoints[1].y) {
-                mCornerPoints[1].y = p.y;
-            }
+        ChartLayout.placePlotArea(mViewport, mBarWidth, getHeight(), getPaddingLeft(),
+                getPaddingTop(), getPaddingBottom(), mBarHeight, mTextSize);
+        mViewport.setDataRange(getVisibleMinX(), getVisibleMaxX(), mLowerBound, mUpperBound);
+        mXAxis.update(getVisibleMinX(), getVisibleMaxX());
+        mGeometryDirty = true;
+    }
+
+    private float measureLabel(String label) {
+        paint.setTextSize(mTextSize);
+        return paint.measureText(label);
+    }
+
+    /**
+     * Sets about how many ticks the y and the x axis show. The actual counts follow from steps
+     * of a single significant digit, such as 40 or 0.7.
+     */
+    public void setTickDensity(int yTicks, int xTicks) {
+        mYAxis.setTickDensity(yTicks);
+        mXAxis.setTickDensity(xTicks);
+        if (hasData() && mCornerPoints[0] != null) {
+            setBounds();
+            setScale();
+            invalidate();
         }
     }
 
+    /**
+     * Shows or hides vertical grid lines and labels at the x axis ticks.
+     *
+     * @param unit the unit of x values, e.g. "s" for time or "km" for distance; may be null
+     */
+    public void setXAxisTicks(boolean visible, String unit) {
+        mXAxisVisible = visible;
+        mXAxisUnit = unit != null ? unit : "";
+        mXAxis.invalidateLabels();
+        mGeometryDirty = true;
+        invalidate();
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
         mBarWidth = w;
         mTextSize = spToPixels(16);
-        setScale();
+        mYAxis.invalidateLabels();
+        mXAxis.invalidateLabels();
+        releaseStaticLayer();
+        if (hasData()) {
+            setScale();
+            setDecimation();
+        }
+    }
+
+    private boolean hasData() {
+        for (int i = 0; i < mLayers.size(); i++) {
+            SeriesLayer layer = mLayers.get(i);
+            if (layer.hasData())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Picks the samples that are actually drawn and selectable for the current width. The seek
+     * bar snaps to the same samples of the primary series, so a selection always resolves to a
+     * real, visible sample. When zoomed, only the visible slice found by binary search is
+     * decimated.
+     */
+    private void setDecimation() {
+        for (int i = 0; i < mLayers.size(); i++) {
+            SeriesLayer layer = mLayers.get(i);
+            if (!layer.hasData())
+                continue;
+            long start = startTiming();
+            boolean decimated = layer.decimate(mZoomed, mVisibleMinX, mVisibleMaxX,
+                    mBarWidth - mBarHeight);
+            if (mMetrics != null) {
+                mMetrics.countLookup(ChartMetrics.Counter.DECIMATION_HITS,
+                        ChartMetrics.Counter.DECIMATION_MISSES, !decimated);
+                if (decimated)
+                    mMetrics.recordSince(ChartMetrics.Phase.DECIMATE, start);
+            }
+            if (decimated && layer == mPrimary)
+                updateSelection();
+        }
+    }
+
+    public void setDecimationMode(Decimator.Mode mode) {
+        mDecimationMode = mode;
+        for (int i = 0; i < mLayers.size(); i++)
+            mLayers.get(i).getDecimator().setMode(mode);
+        if (hasData()) {
+            setDecimation();
+            invalidate();
+        }
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (mOriginalData == null)
+        if (!hasData())
             return;
+        long frameStart = startTiming();
 
-        //drawArea(canvas);
-        drawPath(canvas);
-        drawMarkers(canvas);
-        drawGrid(canvas);
+        if (mDataDirty) {
+            setDecimation();
+            mDataDirty = false;
+        }
+        long start = startTiming();
+        boolean animating = false;
+        if (updateGeometry()) {
+            endTiming(ChartMetrics.Phase.GEOMETRY, start);
+            long now = SystemClock.uptimeMillis();
+            animating = now - mGeometryChangedAt < STATIC_LAYER_IDLE_MS;
+            mGeometryChangedAt = now;
+        }
+
+        if (mStaticLayer == null && getWidth() > 0 && getHeight() > 0) {
+            mStaticLayer = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+            mStaticCanvas.setBitmap(mStaticLayer);
+            mStaticLayerDirty = true;
+        }
+        if (mStaticLayer == null) {
+            drawStaticLayer(canvas);
+        } else if (animating) {
+            // Rasterizing and uploading the bitmap would cost more than this frame draws.
+            if (mMetrics != null)
+                mMetrics.increment(ChartMetrics.Counter.STATIC_LAYER_MISSES);
+            drawStaticLayer(canvas);
+            mStaticLayerDirty = true;
+            mMainHandler.removeCallbacks(mStaticLayerIdleRunnable);
+            mMainHandler.postDelayed(mStaticLayerIdleRunnable, STATIC_LAYER_IDLE_MS);
+        } else {
+            if (mMetrics != null) {
+                mMetrics.countLookup(ChartMetrics.Counter.STATIC_LAYER_HITS,
+                        ChartMetrics.Counter.STATIC_LAYER_MISSES, !mStaticLayerDirty);
+            }
+            if (mStaticLayerDirty) {
+                mStaticLayer.eraseColor(Color.TRANSPARENT);
+                drawStaticLayer(mStaticCanvas);
+                mStaticLayerDirty = false;
+            }
+            canvas.drawBitmap(mStaticLayer, 0, 0, null);
+        }
+        drawSelectedMarker(canvas);
+        start = startTiming();
         drawFlag(canvas);
+        endTiming(ChartMetrics.Phase.FLAG, start);
+
+        if (mMetrics != null) {
+            mMetrics.increment(ChartMetrics.Counter.FRAMES);
+            mMetrics.recordSince(ChartMetrics.Phase.FRAME, frameStart);
+        }
     }
 
-    private void drawFlag(Canvas canvas) {
-        paint.setStrokeWidth(dpToPixels(2));
-        for (PointF p : mOriginalData) {
-            if (isSelectedPoint(p)) {
-                drawFlag(p, String.format("%.0f", p.y) + " km/h", canvas);
+    /**
+     * Makes the chart record draw and data preparation timings, sample counts and cache hits
+     * into {@code metrics}, or stops recording if it is null. Without metrics the hot paths
+     * only pay a null check.
+     */
+    public void setMetrics(ChartMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public ChartMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    private long startTiming() {
+        return mMetrics != null ? System.nanoTime() : 0;
+    }
+
+    private void endTiming(ChartMetrics.Phase phase, long start) {
+        if (mMetrics != null)
+            mMetrics.recordSince(phase, start);
+    }
+
+    private void drawStaticLayer(Canvas canvas) {
+        int saveCount = canvas.save();
+        canvas.clipRect(mViewport.getLeft() - mMarkerRadiusPx, 0,
+                mViewport.getLeft() + mViewport.getWidth() + mMarkerRadiusPx, getHeight());
+        // Areas first, so no fill covers the line of another series.
+        long start = startTiming();
+        for (int i = 0; i < mLayers.size(); i++) {
+            SeriesLayer layer = mLayers.get(i);
+            if (layer.hasData() && Color.alpha(layer.getStyle().getAreaColor()) != 0)
+                drawArea(canvas, layer);
+        }
+        endTiming(ChartMetrics.Phase.AREA, start);
+
+        long pathNanos = 0;
+        long markerNanos = 0;
+        for (int i = 0; i < mLayers.size(); i++) {
+            SeriesLayer layer = mLayers.get(i);
+            if (!layer.hasData())
+                continue;
+            start = startTiming();
+            drawPath(canvas, layer);
+            long markersStart = startTiming();
+            if (layer.getStyle().isMarkersVisible() && ChartLayout.showsMarkers(
+                    layer.getDecimator().size(), mViewport.getWidth(), getMaxMarkerDensity()))
+                drawMarkers(canvas, layer);
+            if (mMetrics != null) {
+                pathNanos += markersStart - start;
+                markerNanos += System.nanoTime() - markersStart;
+                mMetrics.add(ChartMetrics.Counter.POINTS_DRAWN, layer.getDecimator().size());
+                mMetrics.add(ChartMetrics.Counter.POINTS_TOTAL, layer.getSeries().size());
             }
         }
+        if (mMetrics != null) {
+            mMetrics.record(ChartMetrics.Phase.PATH, pathNanos);
+            mMetrics.record(ChartMetrics.Phase.MARKERS, markerNanos);
+        }
+        canvas.restoreToCount(saveCount);
+
+        start = startTiming();
+        drawGrid(canvas);
+        endTiming(ChartMetrics.Phase.GRID, start);
     }
 
-    private Path getFlagPath(PointF p, float h1, float h2, float w) {
-        Path path = new Path();
+    /**
+     * Frees the static layer bitmap; the next frame allocates one matching the view size.
+     */
+    private void releaseStaticLayer() {
+        if (mStaticLayer != null) {
+            mStaticCanvas.setBitmap(null);
+            mStaticLayer.recycle();
+            mStaticLayer = null;
+        }
+    }
 
-        PointF startPoint = transformPoint(p);
-        path.moveTo(startPoint.x, startPoint.y);
-        path.lineTo(startPoint.x, startPoint.y - h2);
+    /**
+     * Chooses how markers are drawn: as round points, or as sprites that reuse one
+     * rasterized circle per series. Which is faster depends on the canvas and the marker
+     * count, so measure with {@link #setMetrics} before switching.
+     */
+    public void setMarkerMode(MarkerMode mode) {
+        mMarkerMode = mode;
+        mStaticLayerDirty = true;
+        invalidate();
+    }
 
-        if (startPoint.x + w > getWidth())
-            w = -w;
-        path.lineTo(startPoint.x + w, startPoint.y - h2);
-        path.lineTo(startPoint.x + w, startPoint.y - h1);
-        path.lineTo(startPoint.x, startPoint.y - h1);
-        path.close();
-        return path;
+    /**
+     * Sets how many markers per pixel of plot width a series may show. Series whose visible
+     * samples are denser than that are drawn without markers, which would only merge into a
+     * band along the line. By default markers are drawn while evenly spread ones would not
+     * overlap. Pass {@link Float#POSITIVE_INFINITY} to always draw them, or NaN to restore
+     * the default.
+     */
+    public void setMaxMarkerDensity(float markersPerPixel) {
+        mMaxMarkerDensity = markersPerPixel;
+        mStaticLayerDirty = true;
+        invalidate();
     }
 
-    private void drawFlag(PointF p, String text, Canvas canvas) {
-        paint.setTextSize(mTextSize);
+    public float getMaxMarkerDensity() {
+        return Float.isNaN(mMaxMarkerDensity)
+                ? ChartLayout.getDefaultMaxMarkerDensity(mMarkerRadiusPx) : mMaxMarkerDensity;
+    }
 
-        float h = (paint.descent() - paint.ascent()) * 3;
-        float w = paint.measureText(text) * 1.5f;
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseStaticLayer();
+        mMainHandler.removeCallbacks(mStaticLayerIdleRunnable);
+        mFlagSprite.release();
+        mSelectedSprite.release();
+        for (int i = 0; i < mLayers.size(); i++)
+            mLayers.get(i).getMarkerSprite().release();
+    }
 
-        Path flag = getFlagPath(p, h / 3, h, w);
+    /**
+     * Rebuilds the screen-space geometry of the layers that changed, or of every layer and the
+     * grid lines and label positions after the axes or the size changed.
+     *
+     * @return true if anything was rebuilt
+     */
+    private boolean updateGeometry() {
+        boolean rebuilt = false;
+        for (int i = 0; i < mLayers.size(); i++) {
+            SeriesLayer layer = mLayers.get(i);
+            if (!layer.hasData())
+                continue;
+            boolean dirty = mGeometryDirty || layer.isGeometryDirty();
+            if (mMetrics != null) {
+                mMetrics.countLookup(ChartMetrics.Counter.GEOMETRY_HITS,
+                        ChartMetrics.Counter.GEOMETRY_MISSES, !dirty);
+            }
+            if (!dirty)
+                continue;
+            layer.updateGeometry(mViewport, transformY(mLowerBound));
+            if (layer == mPrimary)
+                mFlagIndex = -1;
+            mStaticLayerDirty = true;
+            rebuilt = true;
+        }
+        if (!mGeometryDirty)
+            return rebuilt;
 
-        paint.setColor(mFlagColor);
-        paint.setStyle(Paint.Style.FILL);
-        paint.setAntiAlias(false);
-        paint.setShadowLayer(4, 5, 5, 0xFF000000);
-        canvas.drawPath(flag, paint);
-        paint.setShadowLayer(0, 0, 0, 0);
+        layoutGrid();
+        mGeometryDirty = false;
+        mStaticLayerDirty = true;
+        return true;
+    }
 
+    /**
+     * Places the grid lines and tick labels of both axes. Labels come from the axis caches, so
+     * only ticks new on an axis are formatted and measured.
+     */
+    private void layoutGrid() {
+        mGrid.layout(mViewport, mYAxis, mXAxisVisible ? mXAxis : null);
+    }
 
-        paint.setColor(Color.BLACK);
-        paint.setStyle(Paint.Style.STROKE);
-        canvas.drawPath(flag, paint);
+    private void drawFlag(Canvas canvas) {
+        if (mSelectedIndex < 0)
+            return;
+
+        paint.setStrokeWidth(mFlagStrokeWidthPx);
+        paint.setTextSize(mTextSize);
+        if (mSelectedIndex != mFlagIndex)
+            updateFlag(mSelectedIndex);
 
+        boolean rendered = mFlagSprite.draw(canvas, mFlag.getX(), mFlag.getY(),
+                mFlag.getPoleHeight(), mFlag.getHeight(), mFlag.getWidth(), mFlagColor,
+                mFlagStrokeWidthPx);
+        if (mMetrics != null) {
+            mMetrics.countLookup(ChartMetrics.Counter.FLAG_HITS,
+                    ChartMetrics.Counter.FLAG_MISSES, !rendered);
+        }
+
+        paint.setColor(Color.BLACK);
         paint.setStyle(Paint.Style.FILL_AND_STROKE);
         paint.setStrokeWidth(2);
-        PointF p1 = transformPoint(p);
-        w = p1.x + w < getWidth() ? w / 6 : -w * 5 / 6;
 
         paint.setAntiAlias(true);
-        canvas.drawText(text, p1.x + w, p1.y - h * 0.5f, paint);
+        canvas.drawText(mFlagText, mFlag.getTextX(), mFlag.getTextY(), paint);
     }
 
-    private void setBounds() {
-        double range = mCornerPoints[0].y - mCornerPoints[1].y;
-        int tickCount = 4;
-        double tickSize = range / (tickCount - 1);
-        double a = Math.ceil(Math.log10(tickSize) - 1);
-        double pow10a = Math.pow(10, a);
-        float roundedTickSize = (float) (Math.ceil(tickSize / pow10a) * pow10a);
+    /**
+     * Lays out the flag, its label and the label position for the given decimated sample.
+     * Expects the paint to be configured with the flag text size.
+     */
+    private void updateFlag(int index) {
+        float[] vertices = mPrimary.getVertices();
+        float x = vertices[2 * index];
+        float y = vertices[2 * index + 1];
+        mFlagText = mPrimary.getStyle().formatValue(
+                mPrimary.getSeries().getY(mPrimary.getDecimator().getIndex(index)));
 
-        mTickSize = roundedTickSize;
-        mLowerBound = roundedTickSize * ((int) (mCornerPoints[1].y / roundedTickSize));
-        mUpperBound = roundedTickSize * ((int) (1 + mCornerPoints[0].y / roundedTickSize));
+        mFlag.layout(x, y, paint.measureText(mFlagText), paint.descent() - paint.ascent(),
+                getWidth());
+        mFlagIndex = index;
     }
 
-    private void drawGrid(Canvas canvas) {
-        paint.setColor(mGridColor);
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setStrokeWidth(dpToPixels(1));
+    /**
+     * Derives the axis bounds and tick size from the corner points, or from the lowest and
+     * highest visible sample of all series while zoomed, which the min/max pyramid of every
+     * series finds in O(log n).
+     *
+     * @return true if the bounds or the tick size changed
+     */
+    private boolean setBounds() {
+        if (mZoomed) {
+            float minY = Float.MAX_VALUE;
+            float maxY = -Float.MAX_VALUE;
+            for (int i = 0; i < mLayers.size(); i++) {
+                SeriesLayer layer = mLayers.get(i);
+                if (!layer.hasData())
+                    continue;
+                Series series = layer.getSeries();
+                int from = series.ceilingIndex(mVisibleMinX);
+                int to = series.floorIndex(mVisibleMaxX) + 1;
+                if (to > from) {
+                    series.findMinMax(from, to, mVisibleMinMax);
+                    minY = Math.min(minY, series.getY(mVisibleMinMax[0]));
+                    maxY = Math.max(maxY, series.getY(mVisibleMinMax[1]));
+                }
+            }
+            if (minY <= maxY)
+                return setBounds(minY, maxY);
+        }
+        return setBounds(mCornerPoints[1].y, mCornerPoints[0].y);
+    }
 
-        int i = 0;
-        while (mLowerBound + mTickSize * i <= mUpperBound) {
-            Path path = new Path();
-            float currentY = mLowerBound + mTickSize * i;
-            PointF p = transformPoint(new PointF(mCornerPoints[0].x, currentY));
-            PointF p1 = transformPoint(new PointF(mCornerPoints[1].x, currentY));
+    /**
+     * Merges the corner values of all series into the corner points. Only the per-series
+     * corners are visited, so this is cheap enough to run whenever one series changes.
+     *
+     * @return true if the merged x range changed
+     */
+    private boolean mergeCorners() {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < mLayers.size(); i++) {
+            SeriesLayer layer = mLayers.get(i);
+            if (!layer.hasData())
+                continue;
+            minX = Math.min(minX, layer.getMinX());
+            maxX = Math.max(maxX, layer.getMaxX());
+            minY = Math.min(minY, layer.getMinY());
+            maxY = Math.max(maxY, layer.getMaxY());
+        }
+        if (minX > maxX)
+            return false;
 
-            path.moveTo(p.x, p.y);
-            path.lineTo(p1.x, p1.y);
-            canvas.drawPath(path, paint);
+        boolean xChanged = mCornerPoints[0] == null
+                || minX != mCornerPoints[0].x || maxX != mCornerPoints[1].x;
+        if (mCornerPoints[0] == null) {
+            mCornerPoints[0] = new PointF();
+            mCornerPoints[1] = new PointF();
+        }
+        mCornerPoints[0].set(minX, maxY);
+        mCornerPoints[1].set(maxX, minY);
+        return xChanged;
+    }
 
-            paint.setColor(mTextColor);
-            paint.setTextSize(mTextSize);
-            paint.setStyle(Paint.Style.FILL_AND_STROKE);
-            paint.setAntiAlias(true);
-            canvas.drawTextOnPath(String.format("%.0f", currentY) + " km/h", path, 10, -10, paint);
+    /**
+     * Fits the y axis to {@code [minY, maxY]}. While the range moves within the hysteresis of the
+     * axis, the bounds and ticks stay put.
+     *
+     * @return true if the bounds or the ticks changed
+     */
+    private boolean setBounds(float minY, float maxY) {
+        if (!mYAxis.update(minY, maxY))
+            return false;
+        mLowerBound = mYAxis.getLowerBound();
+        mUpperBound = mYAxis.getUpperBound();
+        mGeometryDirty = true;
+        return true;
+    }
 
-            paint.setAntiAlias(false);
-            paint.setColor(mGridColor);
-            i++;
+    private void drawGrid(Canvas canvas) {
+        paint.setStrokeWidth(mGridWidthPx);
+        paint.setTextSize(mTextSize);
+
+        paint.setColor(mGridColor);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setAntiAlias(false);
+        canvas.drawLines(mGrid.getLines(), 0, 4 * mGrid.getLineCount(), paint);
+
+        paint.setColor(mTextColor);
+        paint.setStyle(Paint.Style.FILL_AND_STROKE);
+        paint.setAntiAlias(true);
+        for (int i = 0; i < mGrid.getYLabelCount(); i++)
+            canvas.drawText(mYAxis.getLabel(i), mGrid.getYLabelX(), mGrid.getYLabelY(i), paint);
+        for (int i = 0; i < mGrid.getXLabelCount(); i++) {
+            canvas.drawText(mXAxis.getLabel(mGrid.getXLabelTick(i)), mGrid.getXLabelX(i),
+                    mGrid.getXLabelY(), paint);
         }
+        paint.setAntiAlias(false);
     }
 
-    private boolean isSelectedPoint(PointF p) {
-        int progress = (int) ((p.x - mCornerPoints[0].x) /
-                (mCornerPoints[1].x - mCornerPoints[0].x) * mRangeOfProgress);
-        return progress == mProgress;
+    private void drawMarkers(Canvas canvas, SeriesLayer layer) {
+        if (mMarkerMode == MarkerMode.SPRITES) {
+            layer.getMarkerSprite().draw(canvas, layer.getVertices(), layer.getDecimator().size(),
+                    mMarkerRadiusPx, layer.getStyle().getStrokeColor());
+            return;
+        }
+        paint.setColor(layer.getStyle().getStrokeColor());
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeWidth(2 * mMarkerRadiusPx);
+        paint.setAntiAlias(true);
+        canvas.drawPoints(layer.getVertices(), 0, layer.getDecimator().size() * 2, paint);
+        paint.reset();
     }
 
-    private void drawMarkers(Canvas canvas) {
-        paint.setColor(mStrokeColor);
+    private void drawSelectedMarker(Canvas canvas) {
+        if (mMarkerMode == MarkerMode.SPRITES) {
+            if (mSelectedIndex >= 0) {
+                float[] vertices = mPrimary.getVertices();
+                mSelectedSprite.draw(canvas, vertices[2 * mSelectedIndex],
+                        vertices[2 * mSelectedIndex + 1], 2 * mMarkerRadiusPx,
+                        mPrimary.getStyle().getStrokeColor());
+            }
+            return;
+        }
+        paint.setColor(mPrimary.getStyle().getStrokeColor());
         paint.setStyle(Paint.Style.FILL);
-        paint.setStrokeWidth(dpToPixels(1));
         paint.setAntiAlias(true);
-
-        for (PointF p : mOriginalData) {
-            PointF p1 = transformPoint(p);
-            if (isSelectedPoint(p))
-                canvas.drawCircle(p1.x, p1.y, 2 * dpToPixels(markerRadius), paint);
-            else
-                canvas.drawCircle(p1.x, p1.y, dpToPixels(markerRadius), paint);
+        if (mSelectedIndex >= 0) {
+            float[] vertices = mPrimary.getVertices();
+            canvas.drawCircle(vertices[2 * mSelectedIndex], vertices[2 * mSelectedIndex + 1],
+                    2 * mMarkerRadiusPx, paint);
         }
         paint.reset();
     }
 
-    private void drawPath(Canvas canvas) {
-        paint.setColor(mStrokeColor);
+    private void drawPath(Canvas canvas, SeriesLayer layer) {
+        paint.setColor(layer.getStyle().getStrokeColor());
         paint.setStyle(Paint.Style.STROKE);
-        paint.setStrokeWidth(dpToPixels(mStrokeWidth));
+        paint.setStrokeWidth(layer.getStrokeWidthPx());
         paint.setAntiAlias(true);
 
-        PointF currentPoint = null;
-        for (PointF p : mOriginalData) {
-            if (currentPoint != null) {
-
-                PointF nextPoint = transformPoint(p);
-                canvas.drawLine(currentPoint.x, currentPoint.y,
-                        nextPoint.x, nextPoint.y, paint);
-            }
-            currentPoint = transformPoint(p);
-        }
+        int count = layer.getDecimator().size();
+        if (count > 1)
+            canvas.drawLines(layer.getLines(), 0, (count - 1) * 4, paint);
         paint.reset();
     }
 
-    private void drawArea(Canvas canvas) {
-        paint.setColor(mAreaColor);
+    private void drawArea(Canvas canvas, SeriesLayer layer) {
+        paint.setColor(layer.getStyle().getAreaColor());
         paint.setStyle(Paint.Style.FILL);
         paint.setStrokeWidth(0);
-
-        Path path = new Path();
-        PointF begin = transformPoint(new PointF(mCornerPoints[0].x, mLowerBound));
-        PointF end = transformPoint(new PointF(mCornerPoints[1].x, mLowerBound));
-        path.moveTo(begin.x, begin.y);
-        PointF transPoint;
-        for (PointF p : mOriginalData) {
-            transPoint = transformPoint(p);
-            path.lineTo(transPoint.x, transPoint.y);
-        }
-        path.lineTo(end.x, end.y);
-        path.close();
-        canvas.drawPath(path, paint);
+        canvas.drawPath(layer.getAreaPath(), paint);
         paint.reset();
     }
 
-    private PointF transformPoint(PointF p) {
-        float flagHeight = 3 * mTextSize;
-        float totalPaddingX = mBarHeight / 2 + getPaddingLeft();
-        float totalPaddingY = getPaddingTop() + flagHeight + mBarHeight;
+    private float transformX(float x) {
+        return mViewport.toScreenX(x);
+    }
+
+    private float transformY(float y) {
+        return mViewport.toScreenY(y);
+    }
 
-        return new PointF((p.x - mCornerPoints[0].x) * mScaleX + totalPaddingX,
-                (mUpperBound - p.y) * mScaleY + totalPaddingY);
+    public void setOriginalData(ArrayList<PointF> originalData) {
+        int count = originalData.size();
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            PointF p = originalData.get(i);
+            xs[i] = p.x;
+            ys[i] = p.y;
+        }
+        setData(xs, ys, count);
     }
 
-    public void setOriginalData(ArrayList<PointF> mOriginalData) {
-        this.mOriginalData = new ArrayList<>(mOriginalData);
-        sortOriginalData();
-        setCornerPoints();
-        setProgressPoints();
+    /**
+     * Adds a series drawn over the others on the shared axes.
+     *
+     * @return the index to pass to the data methods for the new series
+     * @throws IllegalStateException if the chart already shows {@link #MAX_SERIES} series
+     */
+    public int addSeries(SeriesStyle style) {
+        if (mLayers.size() >= MAX_SERIES)
+            throw new IllegalStateException("at most " + MAX_SERIES + " series are supported");
+        SeriesLayer layer = new SeriesLayer(style);
+        layer.getDecimator().setMode(mDecimationMode);
+        layer.setStrokeWidthPx(dpToPixels(style.getStrokeWidth()));
+        mLayers.add(layer);
+        ChartState current;
+        do {
+            current = mState.get();
+        } while (!mState.compareAndSet(current, current.withLayer(layer)));
+        return mLayers.size() - 1;
+    }
 
-        if (mCornerPoints[0].x < 0 || mCornerPoints[1].y < 0)
-            throw new NumberFormatException();
-        setBounds();
+    /**
+     * Removes a series added with {@link #addSeries(SeriesStyle)}. The indices of the series
+     * added after it shift down by one.
+     */
+    public void removeSeries(int series) {
+        if (series == 0)
+            throw new IllegalArgumentException("the primary series cannot be removed");
+        SeriesLayer layer = mLayers.remove(series);
+        ChartState current;
+        do {
+            current = mState.get();
+        } while (!mState.compareAndSet(current, current.withoutLayer(layer)));
+        cancelPrepareJob(layer);
+        layer.clear();
+        layer.getMarkerSprite().release();
+        onLayerChanged(layer);
+    }
+
+    public int getSeriesCount() {
+        return mLayers.size();
+    }
+
+    public SeriesStyle getSeriesStyle(int series) {
+        return mLayers.get(series).getStyle();
+    }
+
+    /**
+     * Sets the style of a series. Pixel sizes are resolved here, so changes to a style object
+     * take effect once it is set again.
+     */
+    public void setSeriesStyle(int series, SeriesStyle style) {
+        SeriesLayer layer = mLayers.get(series);
+        layer.setStyle(style);
+        layer.setStrokeWidthPx(dpToPixels(style.getStrokeWidth()));
+        if (layer == mPrimary) {
+            // Axis and flag labels carry the unit of the primary series.
+            mYAxis.invalidateLabels();
+            mGeometryDirty = true;
+            mFlagIndex = -1;
+        }
+        mStaticLayerDirty = true;
         invalidate();
     }
 
-    private void sortOriginalData() {
-        Collections.sort(mOriginalData, new Comparator<PointF>() {
+    /**
+     * Sets the primary series from parallel x/y arrays.
+     *
+     * @see #setData(int, float[], float[], int)
+     */
+    public void setData(float[] xs, float[] ys, int count) {
+        setData(0, xs, ys, count);
+    }
+
+    /**
+     * Sets one series from parallel x/y arrays. The arrays are used without copying and are
+     * sorted in place, so the caller must not modify them afterwards.
+     * <p>
+     * May be called from any thread, which then prepares the data. Called on the UI thread, the
+     * data is shown right away; otherwise it is shown once the UI thread picks it up.
+     */
+    public void setData(int series, float[] xs, float[] ys, int count) {
+        prepareData(series, null, xs, ys, count);
+    }
+
+    /**
+     * Like {@link #setData(int, float[], float[], int)}, and keeps the prepared data in a
+     * process-wide cache under {@code key}. {@link #restoreData(int, String)} shows it again
+     * without preparing it, e.g. in a view recreated after a configuration change.
+     *
+     * @param key identifies the dataset; data set later under the same key replaces it
+     */
+    public void setData(int series, String key, float[] xs, float[] ys, int count) {
+        prepareData(series, key, xs, ys, count);
+    }
+
+    private void prepareData(int series, String key, float[] xs, float[] ys, int count) {
+        SeriesLayer layer = mState.get().getLayer(series);
+        long ticket = mTickets.incrementAndGet();
+        cancelPrepareJob(layer);
+        SeriesStore store = new SeriesStore();
+        store.setData(xs, ys, count);
+        PreparedSeries prepared = PreparedSeries.prepare(store, mDecimationMode,
+                mBarWidth - mBarHeight, mMetrics);
+        if (key != null && prepared != null)
+            PreparedCache.put(key, prepared);
+        publish(layer, prepared, ticket);
+    }
+
+    /**
+     * Shows data cached by {@link #setData(int, String, float[], float[], int)} under
+     * {@code key} as one series, skipping all preparation.
+     *
+     * @return false if no data is cached under the key, e.g. because it was evicted
+     */
+    public boolean restoreData(int series, String key) {
+        PreparedSeries prepared = PreparedCache.get(key);
+        if (prepared == null)
+            return false;
+        SeriesLayer layer = mState.get().getLayer(series);
+        long ticket = mTickets.incrementAndGet();
+        cancelPrepareJob(layer);
+        publish(layer, prepared, ticket);
+        return true;
+    }
+
+    public void setDataAsync(float[] xs, float[] ys, int count, OnDataReadyListener listener) {
+        setDataAsync(0, xs, ys, count, listener);
+    }
+
+    /**
+     * Like {@link #setData(int, float[], float[], int)}, but sorts and prepares the series on a
+     * worker thread, keeping the current data on screen meanwhile. Data passed for the same
+     * series by a later call to any of the data methods supersedes this call, which is then
+     * cancelled. May be called from any thread.
+     *
+     * @param listener notified on the UI thread once the data is shown; may be null
+     */
+    public void setDataAsync(int series, float[] xs, float[] ys, int count,
+                             OnDataReadyListener listener) {
+        SeriesLayer layer = mState.get().getLayer(series);
+        final SeriesStore store = new SeriesStore();
+        store.setData(xs, ys, count);
+        final Decimator.Mode mode = mDecimationMode;
+        final int width = mBarWidth - mBarHeight;
+        final ChartMetrics metrics = mMetrics;
+
+        prepareAsync(layer, new Callable<PreparedSeries>() {
+            @Override
+            public PreparedSeries call() {
+                return PreparedSeries.prepare(store, mode, width, metrics);
+            }
+        }, listener);
+    }
+
+    public void openAsync(File file, OnDataReadyListener listener) {
+        openAsync(0, file, listener);
+    }
+
+    /**
+     * Shows a recording written by {@link SeriesFile} as one series. The file is memory-mapped
+     * and indexed on a worker thread; its samples are read from the mapping as they are drawn
+     * and are never copied onto the heap. The prepared file is cached by its path, size and
+     * modification time, so opening it again skips the indexing. Superseded like
+     * {@link #setDataAsync}; a file that cannot be read is logged and the current data stays on
+     * screen.
+     *
+     * @param listener notified on the UI thread once the data is shown; may be null
+     */
+    public void openAsync(int series, final File file, OnDataReadyListener listener) {
+        SeriesLayer layer = mState.get().getLayer(series);
+        final Decimator.Mode mode = mDecimationMode;
+        final int width = mBarWidth - mBarHeight;
+        final ChartMetrics metrics = mMetrics;
+
+        prepareAsync(layer, new Callable<PreparedSeries>() {
+            @Override
+            public PreparedSeries call() throws Exception {
+                String key = "file:" + file.getAbsolutePath() + ":" + file.length() + ":"
+                        + file.lastModified();
+                PreparedSeries prepared = PreparedCache.get(key);
+                if (prepared != null)
+                    return prepared;
+
+                MappedSeries series = SeriesFile.open(file);
+                if (series.isEmpty())
+                    return null;
+                long start = metrics != null ? System.nanoTime() : 0;
+                series.buildIndex();
+                if (metrics != null)
+                    metrics.recordSince(ChartMetrics.Phase.INDEX, start);
+                prepared = PreparedSeries.prepare(series, mode, width, metrics);
+                if (prepared != null)
+                    PreparedCache.put(key, prepared);
+                return prepared;
+            }
+        }, listener);
+    }
+
+    private void prepareAsync(final SeriesLayer layer, final Callable<PreparedSeries> job,
+                              final OnDataReadyListener listener) {
+        final long ticket = mTickets.incrementAndGet();
+        Future<?> previous = layer.prepareJob.getAndSet(sPrepareExecutor.submit(new Runnable() {
             @Override
-            public int compare(PointF p1, PointF p2) {
-                if (p1.x < p2.x) {
-                    return -1;
-                } else if (p1.x > p2.x) {
-                    return 1;
-                } else {
-                    return 0;
+            public void run() {
+                final PreparedSeries prepared;
+                try {
+                    prepared = job.call();
+                } catch (Exception e) {
+                    Log.e(TAG, "Could not prepare series", e);
+                    return;
                 }
+                if (prepared == null || !publish(layer, prepared, ticket) || listener == null)
+                    return;
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        sync();
+                        // Newer data may have replaced it before it was shown.
+                        if (layer.getPrepared() == prepared)
+                            listener.onDataReady(GraphComponent.this);
+                    }
+                });
             }
-        });
+        }));
+        if (previous != null)
+            previous.cancel(true);
+    }
+
+    private void cancelPrepareJob(SeriesLayer layer) {
+        Future<?> job = layer.prepareJob.getAndSet(null);
+        if (job != null)
+            job.cancel(true);
+    }
+
+    /**
+     * Publishes new data for a layer, unless data passed for it by a later call was published
+     * first, and has the UI thread pick it up.
+     *
+     * @param ticket taken from {@link #mTickets} when the data was passed in
+     * @return true if the data was published
+     */
+    private boolean publish(SeriesLayer layer, PreparedSeries data, long ticket) {
+        ChartState current;
+        ChartState next;
+        do {
+            current = mState.get();
+            next = current.withData(layer, data, ticket);
+            if (next == current)
+                return false;
+        } while (!mState.compareAndSet(current, next));
+        requestSync();
+        return true;
+    }
+
+    /**
+     * Runs {@link #sync()} right away on the UI thread, or posts it there from any other thread.
+     * Posts from several producers before it runs are coalesced into one.
+     */
+    private void requestSync() {
+        if (Looper.myLooper() == Looper.getMainLooper())
+            sync();
+        else if (mSyncScheduled.compareAndSet(false, true))
+            mMainHandler.post(mSyncRunnable);
+    }
+
+    /**
+     * Brings the layers up to the latest published state and adds the samples appended off the
+     * UI thread. Runs on the UI thread, which owns everything derived for drawing.
+     */
+    private void sync() {
+        mSyncScheduled.set(false);
+        ChartState state = mState.get();
+        if (state.getVersion() != mAppliedVersion) {
+            mAppliedVersion = state.getVersion();
+            for (int i = 0; i < state.size(); i++) {
+                SeriesLayer layer = state.getLayer(i);
+                PreparedSeries data = state.getData(i);
+                if (data != null && data != layer.getPrepared())
+                    setPreparedSeries(layer, data);
+            }
+        }
+        drainAppended();
+    }
+
+    /**
+     * Shows new data for one series. If the merged axes stay the same, only that series is
+     * decimated and transformed again; the other layers keep their caches.
+     */
+    private void setPreparedSeries(SeriesLayer layer, PreparedSeries prepared) {
+        if (layer == mPrimary) {
+            mStream = null;
+            mStreaming = false;
+            mZoomed = false;
+        }
+        layer.setPrepared(prepared);
+        onLayerChanged(layer);
+    }
+
+    /**
+     * Merges the bounds after the data of one layer changed and rebuilds what depends on it.
+     */
+    private void onLayerChanged(SeriesLayer layer) {
+        boolean xChanged = mergeCorners();
+        if (mCornerPoints[0] == null)
+            return;
+        // New data is fitted afresh; the hysteresis only steadies streaming and zooming.
+        mYAxis.reset();
+        mXAxis.reset();
+        if (setBounds() || xChanged)
+            setScale();
+
+        if (layer.hasData())
+            layer.decimate(mZoomed, mVisibleMinX, mVisibleMaxX, mBarWidth - mBarHeight);
+        if (xChanged || layer == mPrimary)
+            updateSelection();
+        if (layer == mPrimary && layer.hasData() && !Float.isNaN(mRestoredMinX)) {
+            setVisibleRange(mRestoredMinX, mRestoredMaxX);
+            mRestoredMinX = Float.NaN;
+            mRestoredMaxX = Float.NaN;
+        }
+        layer.invalidateGeometry();
+        mStaticLayerDirty = true;
+        invalidate();
+    }
+
+    /**
+     * Switches the primary series to live data and removes all other series. Samples are then
+     * added with {@link #append(float, float)} and
+     * {@link #appendBatch(float[], float[], int, int)} into a ring buffer holding at most
+     * {@code capacity} samples. If {@code window} is positive, samples older than the newest x
+     * minus {@code window} are dropped and the x axis spans {@code window}.
+     */
+    public void setStreaming(int capacity, float window) {
+        // Data passed before this call no longer applies.
+        long ticket = mTickets.incrementAndGet();
+        ChartState current;
+        ChartState next;
+        do {
+            current = mState.get();
+            next = current.withData(mPrimary, null, ticket);
+            for (int i = next.size() - 1; i > 0; i--)
+                next = next.withoutLayer(next.getLayer(i));
+        } while (!mState.compareAndSet(current, next));
+        for (int i = 0; i < mLayers.size(); i++)
+            cancelPrepareJob(mLayers.get(i));
+        mAppendQueue.clear();
+        while (mLayers.size() > 1)
+            mLayers.remove(mLayers.size() - 1).clear();
+        mStream = new SeriesStore(capacity);
+        mPrimary.setLiveSeries(mStream);
+        mStreaming = true;
+        mZoomed = false;
+        mStreamWindow = window;
+        mStreamLayoutChanged = true;
+        mYAxis.reset();
+        mXAxis.reset();
+        mSelectedIndex = -1;
+        invalidate();
+    }
+
+    /**
+     * Sets whether the x axis scrolls to keep the newest sample at the right edge. Otherwise the
+     * axis starts at the oldest sample and only moves when samples are evicted or run past it.
+     */
+    public void setFollowNewest(boolean followNewest) {
+        mFollowNewest = followNewest;
+        if (mStreaming && !mStream.isEmpty()) {
+            mStreamLayoutChanged = true;
+            publishAppended();
+        }
+    }
+
+    /**
+     * Appends a sample to the live series. May be called from any thread; off the UI thread the
+     * sample is queued and shown once the UI thread drains the queue.
+     */
+    public void append(float x, float y) {
+        checkStreaming();
+        if (isOnUiThreadInOrder()) {
+            appendSample(x, y);
+            publishAppended();
+        } else {
+            mAppendQueue.offer(new float[]{x, y});
+            requestSync();
+        }
+    }
+
+    /**
+     * Appends {@code count} samples to the live series, like {@link #append(float, float)}.
+     * Off the UI thread the samples are copied before this returns.
+     */
+    public void appendBatch(float[] xs, float[] ys, int offset, int count) {
+        checkStreaming();
+        if (isOnUiThreadInOrder()) {
+            for (int i = 0; i < count; i++)
+                appendSample(xs[offset + i], ys[offset + i]);
+            publishAppended();
+        } else {
+            float[] samples = new float[2 * count];
+            for (int i = 0; i < count; i++) {
+                samples[2 * i] = xs[offset + i];
+                samples[2 * i + 1] = ys[offset + i];
+            }
+            mAppendQueue.offer(samples);
+            requestSync();
+        }
+    }
+
+    private void checkStreaming() {
+        if (!mStreaming)
+            throw new IllegalStateException("call setStreaming() before appending samples");
+    }
+
+    /**
+     * Returns true if samples can be appended directly, without overtaking queued ones.
+     */
+    private boolean isOnUiThreadInOrder() {
+        return Looper.myLooper() == Looper.getMainLooper() && mAppendQueue.isEmpty();
+    }
+
+    private void drainAppended() {
+        boolean appended = false;
+        float[] samples;
+        while ((samples = mAppendQueue.poll()) != null) {
+            // Samples queued before the primary series got new data are dropped.
+            if (!mStreaming)
+                continue;
+            for (int i = 0; i < samples.length; i += 2)
+                appendSample(samples[i], samples[i + 1]);
+            appended = true;
+        }
+        if (appended)
+            publishAppended();
+    }
+
+    private void appendSample(float x, float y) {
+        if (mStream.append(x, y, mStreamWindow) > 0)
+            mStreamLayoutChanged = true;
+    }
+
+    /**
+     * Brings the axes up to date after samples were appended and schedules the decimation for
+     * the next frame. Decimation buckets span the whole plot and shift with every append, so
+     * the whole view is redrawn; appends arriving before that frame share one decimation.
+     */
+    private void publishAppended() {
+        int count = mStream.size();
+        if (count == 0)
+            return;
+
+        float oldest = mStream.getX(0);
+        float newest = mStream.getX(count - 1);
+        float left, right;
+        if (mFollowNewest && mStreamWindow > 0) {
+            left = newest - mStreamWindow;
+            right = newest;
+        } else {
+            left = oldest;
+            right = Math.max(newest, oldest + mStreamWindow);
+            if (!mStreamLayoutChanged && mCornerPoints[1] != null)
+                right = Math.max(right, mCornerPoints[1].x);
+        }
+        if (right <= left)
+            right = left + 1;
+
+        if (mCornerPoints[0] == null) {
+            mCornerPoints[0] = new PointF();
+            mCornerPoints[1] = new PointF();
+        }
+        boolean layoutChanged = mStreamLayoutChanged || mZoomed
+                || left != mCornerPoints[0].x || right != mCornerPoints[1].x;
+        mCornerPoints[0].set(left, mStream.getMaxY());
+        mCornerPoints[1].set(right, mStream.getMinY());
+        if (setBounds())
+            layoutChanged = true;
+        mStreamLayoutChanged = false;
+
+        if (layoutChanged)
+            setScale();
+        // The ring reuses its series object, so the decimator cannot tell the samples changed.
+        mPrimary.getDecimator().invalidate();
+        mDataDirty = true;
+        invalidate();
+    }
+
+    /**
+     * Zooms the x axis to show {@code [xMin, xMax]}, clamped to the data range. Only samples in
+     * the visible range are decimated and drawn.
+     */
+    public void setVisibleRange(float xMin, float xMax) {
+        if (!hasData() || mCornerPoints[0] == null)
+            return;
+        float dataMin = mCornerPoints[0].x;
+        float dataMax = mCornerPoints[1].x;
+        float span = Math.max(xMax - xMin, (dataMax - dataMin) * MIN_VISIBLE_FRACTION);
+        if (span >= dataMax - dataMin) {
+            resetVisibleRange();
+            return;
+        }
+        // Keep the span when the range is pushed past either end of the data.
+        xMin = Math.max(dataMin, Math.min(xMin, dataMax - span));
+
+        mZoomed = true;
+        mVisibleMinX = xMin;
+        mVisibleMaxX = xMin + span;
+        onVisibleRangeChanged();
+    }
+
+    /**
+     * Shows the whole data range again.
+     */
+    public void resetVisibleRange() {
+        if (!mZoomed)
+            return;
+        mZoomed = false;
+        onVisibleRangeChanged();
+    }
+
+    private void onVisibleRangeChanged() {
+        setBounds();
+        setScale();
+        mDataDirty = true;
+        invalidate();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.zoomed = mZoomed;
+        state.visibleMinX = mVisibleMinX;
+        state.visibleMaxX = mVisibleMaxX;
+        state.selectedX = mSelectedX;
+        state.seekBarState = mCustomSeekBar.onSaveInstanceState();
+        return state;
+    }
+
+    /**
+     * Restores the zoom and the selection. The data itself is not saved; it is set again, and
+     * a zoomed range restored before the data arrives is applied when it does.
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState saved = (SavedState) state;
+        super.onRestoreInstanceState(saved.getSuperState());
+        mCustomSeekBar.onRestoreInstanceState(saved.seekBarState);
+        mSelectedX = saved.selectedX;
+        if (!saved.zoomed) {
+            resetVisibleRange();
+        } else if (mPrimary.hasData()) {
+            setVisibleRange(saved.visibleMinX, saved.visibleMaxX);
+        } else {
+            mRestoredMinX = saved.visibleMinX;
+            mRestoredMaxX = saved.visibleMaxX;
+        }
+        updateSelection();
+        invalidate();
+    }
+
+    // The seek bar has no id of its own; its state is saved within ours.
+    @Override
+    protected void dispatchSaveInstanceState(SparseArray<Parcelable> container) {
+        dispatchFreezeSelfOnly(container);
+    }
+
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        dispatchThawSelfOnly(container);
+    }
+
+    static class SavedState extends BaseSavedState {
+
+        boolean zoomed;
+        float visibleMinX, visibleMaxX;
+        float selectedX;
+        Parcelable seekBarState;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            zoomed = in.readInt() != 0;
+            visibleMinX = in.readFloat();
+            visibleMaxX = in.readFloat();
+            selectedX = in.readFloat();
+            seekBarState = in.readParcelable(CustomSeekBar.class.getClassLoader());
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(zoomed ? 1 : 0);
+            out.writeFloat(visibleMinX);
+            out.writeFloat(visibleMaxX);
+            out.writeFloat(selectedX);
+            out.writeParcelable(seekBarState, flags);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in) {
+                        return new SavedState(in);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        handleViewportGesture(event);
+        return mViewportGesture;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        handleViewportGesture(event);
+        return true;
+    }
+
+    /**
+     * Feeds the zoom and pan detectors. Once a pinch starts, or a drag that did not grab the
+     * seek bar thumb, the gesture is taken away from the seek bar.
+     */
+    private void handleViewportGesture(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN)
+            mViewportGesture = false;
+        mScaleDetector.onTouchEvent(event);
+        mGestureDetector.onTouchEvent(event);
+    }
+
+    private class ViewportGestureListener extends GestureDetector.SimpleOnGestureListener
+            implements ScaleGestureDetector.OnScaleGestureListener {
+
+        @Override
+        public boolean onDown(MotionEvent e) {
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            if (!mViewportGesture && mCustomSeekBar.isThumbDragging())
+                return false;
+            mViewportGesture = true;
+            if (mZoomed) {
+                float dx = distanceX / mViewport.getWidth() * (mVisibleMaxX - mVisibleMinX);
+                setVisibleRange(mVisibleMinX + dx, mVisibleMaxX + dx);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean onScaleBegin(ScaleGestureDetector detector) {
+            if (!hasData())
+                return false;
+            mViewportGesture = true;
+            return true;
+        }
+
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            float minX = getVisibleMinX();
+            float maxX = getVisibleMaxX();
+            float focus = mViewport.toDataX(detector.getFocusX());
+            float factor = detector.getScaleFactor();
+            setVisibleRange(focus - (focus - minX) / factor, focus + (maxX - focus) / factor);
+            return true;
+        }
+
+        @Override
+        public void onScaleEnd(ScaleGestureDetector detector) {
+        }
     }
 
     @Override
     public void onProgressChanged(CustomSeekBar seekBar, int progress, boolean fromUser) {
-        this.mProgress = progress;
+        if (mCornerPoints[0] == null)
+            return;
+        // Keep the exact x of the sample, so the selection survives zooming and new data.
+        mSelectedIndex = findSelectable(toDataX(progress));
+        mSelectedX = mSelectedIndex >= 0 ? getSelectableX(mSelectedIndex) : toDataX(progress);
         invalidate();
     }
-}
\ No newline at end of file
+}
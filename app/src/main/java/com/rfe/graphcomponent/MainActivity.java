@@ -1,6 +1,5 @@
 package com.rfe.graphcomponent;
 
-import android.graphics.PointF;
 import android.support.v7.app.ActionBarActivity;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
@@ -8,27 +7,46 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 
-import java.util.ArrayList;
 import java.util.Random;
 
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String STATE_SEED = "seed";
+    private static final int POINT_COUNT = 10;
+
+    // Seed of the random demo data, saved so a recreated activity shows the same data.
+    private long mSeed;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        ArrayList<PointF> p = new ArrayList<>();
-        Random rand = new Random();
-        for (int i = 0; i < 10; i++) {
-            p.add(new PointF(rand.nextInt(300), rand.nextInt(300)));
-            Log.i("Points", Float.toString(p.get(i).x) + " " + Float.toString(p.get(i).y));
-        }
+        mSeed = savedInstanceState != null ? savedInstanceState.getLong(STATE_SEED)
+                : new Random().nextLong();
+        String key = "random:" + mSeed;
         GraphComponent gc = (GraphComponent) findViewById(R.id.plot);
-        gc.setOriginalData(p);
+        // After a configuration change the prepared data is usually still cached.
+        if (gc.restoreData(0, key))
+            return;
+
+        float[] xs = new float[POINT_COUNT];
+        float[] ys = new float[POINT_COUNT];
+        Random rand = new Random(mSeed);
+        for (int i = 0; i < POINT_COUNT; i++) {
+            xs[i] = rand.nextInt(300);
+            ys[i] = rand.nextInt(300);
+            Log.i("Points", Float.toString(xs[i]) + " " + Float.toString(ys[i]));
+        }
+        gc.setData(0, key, xs, ys, POINT_COUNT);
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLong(STATE_SEED, mSeed);
+    }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
@@ -0,0 +1,159 @@
+package com.rfe.graphcomponent;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.Build;
+
+/**
+ * A marker circle rasterized once into a small bitmap until its radius or color changes. The
+ * markers of a series are drawn in batches: one drawVertices call textured with the bitmap
+ * covers up to {@link #BATCH_SIZE} markers, two triangles each, so no circle is rasterized
+ * again. Hardware-accelerated canvases before API 29 ignore drawVertices and get one bitmap
+ * draw per marker instead.
+ */
+final class MarkerSprite {
+
+    // Four vertices per marker, addressed by 16-bit indices.
+    private static final int BATCH_SIZE = Short.MAX_VALUE / 4;
+    private static final int FIRST_API_WITH_HARDWARE_VERTICES = 29;
+
+    private final Paint mPaint = new Paint();
+    private Bitmap mBitmap = null;
+    private float mCenter;
+
+    // Batch buffers: corner positions per marker, and the texture corners and triangle indices
+    // that repeat for every marker of a batch.
+    private final Paint mBatchPaint = new Paint();
+    private float[] mVertices = new float[0];
+    private float[] mTexCoords = new float[0];
+    private short[] mIndices = new short[0];
+    private boolean mBatchStale = true;
+
+    private float mRadius;
+    private int mColor;
+
+    /**
+     * Draws the marker centered at each of the first {@code count} vertices, given as x/y
+     * pairs. The bitmap is rebuilt only if the radius or the color changed.
+     *
+     * @return true if the bitmap had to be rebuilt
+     */
+    boolean draw(Canvas canvas, float[] vertices, int count, float radius, int color) {
+        boolean stale = prepare(radius, color);
+        if (canvas.isHardwareAccelerated()
+                && Build.VERSION.SDK_INT < FIRST_API_WITH_HARDWARE_VERTICES) {
+            for (int i = 0; i < count; i++) {
+                canvas.drawBitmap(mBitmap, vertices[2 * i] - mCenter,
+                        vertices[2 * i + 1] - mCenter, null);
+            }
+            return stale;
+        }
+
+        int batch = Math.min(count, BATCH_SIZE);
+        if (mBatchStale || mTexCoords.length < 8 * batch)
+            buildBatch(Math.max(batch, mTexCoords.length / 8));
+        if (mVertices.length < 8 * count)
+            mVertices = new float[8 * count];
+        float size = mBitmap.getWidth();
+        for (int i = 0; i < count; i++) {
+            float left = vertices[2 * i] - mCenter;
+            float top = vertices[2 * i + 1] - mCenter;
+            int v = 8 * i;
+            mVertices[v] = left;
+            mVertices[v + 1] = top;
+            mVertices[v + 2] = left + size;
+            mVertices[v + 3] = top;
+            mVertices[v + 4] = left + size;
+            mVertices[v + 5] = top + size;
+            mVertices[v + 6] = left;
+            mVertices[v + 7] = top + size;
+        }
+        for (int first = 0; first < count; first += BATCH_SIZE) {
+            int markers = Math.min(count - first, BATCH_SIZE);
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, 8 * markers, mVertices, 8 * first,
+                    mTexCoords, 0, null, 0, mIndices, 0, 6 * markers, mBatchPaint);
+        }
+        return stale;
+    }
+
+    /**
+     * Fills the texture corners and triangle indices for batches of {@code markers} markers
+     * and points the batch paint at the current bitmap.
+     */
+    private void buildBatch(int markers) {
+        if (mTexCoords.length < 8 * markers) {
+            mTexCoords = new float[8 * markers];
+            mIndices = new short[6 * markers];
+        }
+        float size = mBitmap.getWidth();
+        for (int i = 0; i < mTexCoords.length / 8; i++) {
+            int t = 8 * i;
+            mTexCoords[t] = 0;
+            mTexCoords[t + 1] = 0;
+            mTexCoords[t + 2] = size;
+            mTexCoords[t + 3] = 0;
+            mTexCoords[t + 4] = size;
+            mTexCoords[t + 5] = size;
+            mTexCoords[t + 6] = 0;
+            mTexCoords[t + 7] = size;
+            int corner = 4 * i;
+            int index = 6 * i;
+            mIndices[index] = (short) corner;
+            mIndices[index + 1] = (short) (corner + 1);
+            mIndices[index + 2] = (short) (corner + 2);
+            mIndices[index + 3] = (short) corner;
+            mIndices[index + 4] = (short) (corner + 2);
+            mIndices[index + 5] = (short) (corner + 3);
+        }
+        mBatchPaint.reset();
+        mBatchPaint.setFilterBitmap(true);
+        mBatchPaint.setShader(new BitmapShader(mBitmap, Shader.TileMode.CLAMP,
+                Shader.TileMode.CLAMP));
+        mBatchStale = false;
+    }
+
+    /**
+     * Draws a single marker centered at {@code (x, y)}.
+     */
+    boolean draw(Canvas canvas, float x, float y, float radius, int color) {
+        boolean stale = prepare(radius, color);
+        canvas.drawBitmap(mBitmap, x - mCenter, y - mCenter, null);
+        return stale;
+    }
+
+    private boolean prepare(float radius, int color) {
+        if (mBitmap != null && radius == mRadius && color == mColor)
+            return false;
+        // One pixel of room on each side for the anti-aliased edge.
+        int size = (int) Math.ceil(2 * radius) + 2;
+        if (mBitmap == null || mBitmap.getWidth() != size) {
+            release();
+            mBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        mCenter = size / 2f;
+
+        mPaint.reset();
+        mPaint.setColor(color);
+        mPaint.setStyle(Paint.Style.FILL);
+        mPaint.setAntiAlias(true);
+        new Canvas(mBitmap).drawCircle(mCenter, mCenter, radius, mPaint);
+
+        mRadius = radius;
+        mColor = color;
+        mBatchStale = true;
+        return true;
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+}
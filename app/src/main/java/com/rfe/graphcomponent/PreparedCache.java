@@ -0,0 +1,44 @@
+package com.rfe.graphcomponent;
+
+import android.support.v4.util.LruCache;
+
+import com.rfe.graphcomponent.core.PreparedSeries;
+import com.rfe.graphcomponent.core.SeriesStore;
+
+/**
+ * Process-wide cache of prepared series by dataset key, so a view recreated after a
+ * configuration change shows the same data again without sorting, indexing and decimating it.
+ * Heap-backed series are weighed by their samples; mapped series only hold their index on the
+ * heap and are cheap to keep.
+ */
+final class PreparedCache {
+
+    // Bytes per sample of a heap-backed series: x, y and roughly the min/max index.
+    private static final int BYTES_PER_SAMPLE = 12;
+
+    private static final LruCache<String, PreparedSeries> sCache =
+            new LruCache<String, PreparedSeries>(
+                    (int) Math.min(Runtime.getRuntime().maxMemory() / 8 / 1024, Integer.MAX_VALUE)) {
+                @Override
+                protected int sizeOf(String key, PreparedSeries prepared) {
+                    if (!(prepared.getSeries() instanceof SeriesStore))
+                        return 1;
+                    long bytes = (long) prepared.getSeries().size() * BYTES_PER_SAMPLE;
+                    return (int) Math.max(1, Math.min(bytes / 1024, Integer.MAX_VALUE));
+                }
+            };
+
+    private PreparedCache() {
+    }
+
+    /**
+     * Returns the series prepared under {@code key}, or null if there is none or it was evicted.
+     */
+    static PreparedSeries get(String key) {
+        return sCache.get(key);
+    }
+
+    static void put(String key, PreparedSeries prepared) {
+        sCache.put(key, prepared);
+    }
+}
@@ -0,0 +1,205 @@
+package com.rfe.graphcomponent;
+
+import android.graphics.Path;
+
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.PreparedSeries;
+import com.rfe.graphcomponent.core.Series;
+import com.rfe.graphcomponent.core.Viewport;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One series of a {@link GraphComponent} with everything derived from it for drawing: its
+ * decimation and its screen-space vertex, line and area geometry. Layers are rebuilt
+ * independently, so new data for one series leaves the caches of the others untouched.
+ */
+final class SeriesLayer {
+
+    private SeriesStyle mStyle;
+    // The stroke width of the style in pixels, resolved when the style is set.
+    private float mStrokeWidthPx;
+    private Series mSeries = null;
+    private PreparedSeries mPrepared = null;
+    private Decimator mDecimator = new Decimator();
+    private float mMinX, mMaxX, mMinY, mMaxY;
+
+    private float[] mVertices = new float[0];
+    private float[] mLines = new float[0];
+    private final Path mAreaPath = new Path();
+    private boolean mGeometryDirty = true;
+    private final MarkerSprite mMarkerSprite = new MarkerSprite();
+
+    // Pending preparation of new data for this layer, see GraphComponent.prepareAsync(). Set
+    // from any thread that passes data for the layer.
+    final AtomicReference<Future<?>> prepareJob = new AtomicReference<>();
+
+    SeriesLayer(SeriesStyle style) {
+        mStyle = style;
+    }
+
+    SeriesStyle getStyle() {
+        return mStyle;
+    }
+
+    void setStyle(SeriesStyle style) {
+        mStyle = style;
+    }
+
+    float getStrokeWidthPx() {
+        return mStrokeWidthPx;
+    }
+
+    void setStrokeWidthPx(float strokeWidthPx) {
+        mStrokeWidthPx = strokeWidthPx;
+    }
+
+    Series getSeries() {
+        return mSeries;
+    }
+
+    /**
+     * Returns the snapshot the layer was last set from, or null if it shows live data or none.
+     */
+    PreparedSeries getPrepared() {
+        return mPrepared;
+    }
+
+    Decimator getDecimator() {
+        return mDecimator;
+    }
+
+    boolean hasData() {
+        return mSeries != null && !mSeries.isEmpty();
+    }
+
+    float getMinX() {
+        return mMinX;
+    }
+
+    float getMaxX() {
+        return mMaxX;
+    }
+
+    float getMinY() {
+        return mMinY;
+    }
+
+    float getMaxY() {
+        return mMaxY;
+    }
+
+    /**
+     * Takes over the series, corner values and decimation of a prepared snapshot.
+     */
+    void setPrepared(PreparedSeries prepared) {
+        mPrepared = prepared;
+        mSeries = prepared.getSeries();
+        mMinX = prepared.getMinX();
+        mMaxX = prepared.getMaxX();
+        mMinY = prepared.getMinY();
+        mMaxY = prepared.getMaxY();
+        Decimator.Mode mode = mDecimator.getMode();
+        mDecimator = new Decimator(prepared.getDecimator());
+        mDecimator.setMode(mode);
+        mGeometryDirty = true;
+    }
+
+    /**
+     * Switches to a series whose samples are appended later; the corner values are then
+     * maintained by the caller.
+     */
+    void setLiveSeries(Series series) {
+        mPrepared = null;
+        mSeries = series;
+        mDecimator.invalidate();
+        mGeometryDirty = true;
+    }
+
+    void clear() {
+        mPrepared = null;
+        mSeries = null;
+        mDecimator.invalidate();
+    }
+
+    /**
+     * Decimates the samples in {@code [minX, maxX]} plus one sample past each edge, so the line
+     * reaches the edges, or the whole series if {@code zoomed} is false.
+     *
+     * @return true if the decimation changed
+     */
+    boolean decimate(boolean zoomed, float minX, float maxX, int width) {
+        int from = 0;
+        int to = mSeries.size();
+        if (zoomed) {
+            from = Math.max(mSeries.ceilingIndex(minX) - 1, 0);
+            to = Math.min(mSeries.floorIndex(maxX) + 2, to);
+        }
+        if (to <= from) {
+            // Nothing of this series is visible.
+            from = 0;
+            to = 0;
+        }
+        if (!mDecimator.update(mSeries, from, to, width))
+            return false;
+        mGeometryDirty = true;
+        return true;
+    }
+
+    void invalidateGeometry() {
+        mGeometryDirty = true;
+    }
+
+    boolean isGeometryDirty() {
+        return mGeometryDirty;
+    }
+
+    /**
+     * Transforms every decimated sample into the reusable vertex and line buffers and rebuilds
+     * the area path down to {@code baseline}. Buffers only grow and the path is rewound, so
+     * steady-state frames do not allocate.
+     */
+    void updateGeometry(Viewport viewport, float baseline) {
+        int count = mDecimator.size();
+        if (mVertices.length < count * 2)
+            mVertices = new float[count * 2];
+        if (mLines.length < (count - 1) * 4)
+            mLines = new float[(count - 1) * 4];
+
+        for (int i = 0; i < count; i++) {
+            int index = mDecimator.getIndex(i);
+            mVertices[2 * i] = viewport.toScreenX(mSeries.getX(index));
+            mVertices[2 * i + 1] = viewport.toScreenY(mSeries.getY(index));
+        }
+        for (int i = 0; i < count - 1; i++) {
+            System.arraycopy(mVertices, 2 * i, mLines, 4 * i, 4);
+        }
+
+        mAreaPath.rewind();
+        if (count > 0) {
+            mAreaPath.moveTo(mVertices[0], baseline);
+            for (int i = 0; i < count; i++)
+                mAreaPath.lineTo(mVertices[2 * i], mVertices[2 * i + 1]);
+            mAreaPath.lineTo(mVertices[2 * (count - 1)], baseline);
+            mAreaPath.close();
+        }
+        mGeometryDirty = false;
+    }
+
+    float[] getVertices() {
+        return mVertices;
+    }
+
+    float[] getLines() {
+        return mLines;
+    }
+
+    Path getAreaPath() {
+        return mAreaPath;
+    }
+
+    MarkerSprite getMarkerSprite() {
+        return mMarkerSprite;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rfe.graphcomponent;
+
+import com.rfe.graphcomponent.core.AxisScale;
+
+/**
+ * How one series of a {@link GraphComponent} is drawn, and the unit its values are labelled
+ * with. Pass a changed style to {@link GraphComponent#setSeriesStyle(int, SeriesStyle)} again
+ * to apply it.
+ */
+public class SeriesStyle {
+
+    private int mStrokeColor;
+    private int mAreaColor;
+    private float mStrokeWidth = 3;
+    private boolean mMarkersVisible = true;
+    private String mUnit = "";
+
+    public SeriesStyle(int strokeColor, int areaColor, String unit) {
+        mStrokeColor = strokeColor;
+        mAreaColor = areaColor;
+        setUnit(unit);
+    }
+
+    public int getStrokeColor() {
+        return mStrokeColor;
+    }
+
+    public void setStrokeColor(int strokeColor) {
+        mStrokeColor = strokeColor;
+    }
+
+    public int getAreaColor() {
+        return mAreaColor;
+    }
+
+    public void setAreaColor(int areaColor) {
+        mAreaColor = areaColor;
+    }
+
+    /**
+     * Returns the line width in dp.
+     */
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        mStrokeWidth = strokeWidth;
+    }
+
+    public boolean isMarkersVisible() {
+        return mMarkersVisible;
+    }
+
+    public void setMarkersVisible(boolean markersVisible) {
+        mMarkersVisible = markersVisible;
+    }
+
+    public String getUnit() {
+        return mUnit;
+    }
+
+    public void setUnit(String unit) {
+        mUnit = unit != null ? unit : "";
+    }
+
+    /**
+     * Formats a value of this series for the axis and the flag, e.g. "42 km/h".
+     */
+    String formatValue(float value) {
+        return AxisScale.formatValue(value, 0, mUnit);
+    }
+}
@@ -0,0 +1,84 @@
+package com.rfe.graphcomponent;
+
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.PreparedSeries;
+import com.rfe.graphcomponent.core.SeriesStore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ChartStateTest {
+
+    private static SeriesLayer layer() {
+        return new SeriesLayer(new SeriesStyle(0, 0, null));
+    }
+
+    private static PreparedSeries data() {
+        SeriesStore store = new SeriesStore();
+        store.setData(new float[]{0, 1, 2}, new float[]{1, 2, 3}, 3);
+        return PreparedSeries.prepare(store, Decimator.Mode.NONE, 100);
+    }
+
+    @Test
+    public void everyChangeIsANewVersion() {
+        SeriesLayer a = layer();
+        ChartState state = ChartState.EMPTY.withLayer(a);
+        assertEquals(1, state.getVersion());
+        assertEquals(1, state.size());
+        assertSame(a, state.getLayer(0));
+        assertNull(state.getData(0));
+
+        ChartState withData = state.withData(a, data(), 1);
+        assertEquals(2, withData.getVersion());
+        assertEquals(1, state.getVersion());
+        assertNull(state.getData(0));
+    }
+
+    @Test
+    public void staleTicketsAreIgnored() {
+        SeriesLayer a = layer();
+        PreparedSeries newer = data();
+        ChartState state = ChartState.EMPTY.withLayer(a).withData(a, newer, 5);
+        assertSame(state, state.withData(a, data(), 4));
+        assertSame(state, state.withData(a, data(), 5));
+        assertSame(newer, state.getData(0));
+
+        ChartState live = state.withData(a, null, 6);
+        assertNull(live.getData(0));
+    }
+
+    @Test
+    public void dataForRemovedSeriesIsIgnored() {
+        SeriesLayer a = layer();
+        SeriesLayer b = layer();
+        ChartState state = ChartState.EMPTY.withLayer(a).withLayer(b);
+        ChartState removed = state.withoutLayer(a);
+        assertEquals(1, removed.size());
+        assertSame(b, removed.getLayer(0));
+        assertSame(removed, removed.withData(a, data(), 1));
+        assertSame(removed, removed.withoutLayer(a));
+    }
+
+    @Test
+    public void removingKeepsTheDataOfOtherSeries() {
+        SeriesLayer a = layer();
+        SeriesLayer b = layer();
+        SeriesLayer c = layer();
+        PreparedSeries dataC = data();
+        ChartState state = ChartState.EMPTY.withLayer(a).withLayer(b).withLayer(c)
+                .withData(c, dataC, 3);
+        ChartState removed = state.withoutLayer(b);
+        assertSame(c, removed.getLayer(1));
+        assertSame(dataC, removed.getData(1));
+        // The ticket moved along with the data.
+        assertSame(removed, removed.withData(c, data(), 2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void missingSeries() {
+        ChartState.EMPTY.withLayer(layer()).getLayer(1);
+    }
+}
@@ -0,0 +1,102 @@
+package com.rfe.graphcomponent.benchmark;
+
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.PreparedSeries;
+import com.rfe.graphcomponent.core.SeriesStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * The work behind GraphComponent.setData: sorting with the y-range scan, indexing, decimation
+ * and axis bounds. Sorting happens in place, so every operation first copies the unsorted
+ * input into reused buffers; {@link #copyInput} times that copy alone, to subtract it from the
+ * others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBenchmark {
+
+    private static final int WIDTH = 1080;
+
+    public enum Distribution {
+        /**
+         * Samples in random x order.
+         */
+        RANDOM,
+        /**
+         * Samples already sorted by x.
+         */
+        SORTED,
+        /**
+         * Sorted samples with one in a thousand swapped with a random other sample.
+         */
+        NEARLY_SORTED
+    }
+
+    /**
+     * The trace in the order the samples arrive in, which only matters before sorting.
+     */
+    public static class Input extends SeriesData {
+
+        @Param({"RANDOM", "SORTED", "NEARLY_SORTED"})
+        public Distribution distribution;
+
+        @Override
+        protected void arrange(Random random) {
+            if (distribution == Distribution.RANDOM) {
+                for (int i = size - 1; i > 0; i--)
+                    swap(i, random.nextInt(i + 1));
+            } else if (distribution == Distribution.NEARLY_SORTED) {
+                for (int n = 0; n < size / 1000; n++)
+                    swap(random.nextInt(size), random.nextInt(size));
+            }
+        }
+    }
+
+    private float[] xs;
+    private float[] ys;
+
+    @Setup
+    public void allocate(Input input) {
+        xs = new float[input.size];
+        ys = new float[input.size];
+    }
+
+    @Benchmark
+    public float[] copyInput(Input input) {
+        System.arraycopy(input.xs, 0, xs, 0, input.size);
+        System.arraycopy(input.ys, 0, ys, 0, input.size);
+        return ys;
+    }
+
+    @Benchmark
+    public PreparedSeries setData(Input input) {
+        copyInput(input);
+        SeriesStore series = new SeriesStore();
+        series.setData(xs, ys, input.size);
+        return PreparedSeries.prepare(series, Decimator.Mode.LTTB, WIDTH);
+    }
+
+    @Benchmark
+    public SeriesStore sortByX(Input input) {
+        copyInput(input);
+        SeriesStore series = new SeriesStore();
+        series.setData(xs, ys, input.size);
+        series.sortByX();
+        return series;
+    }
+}
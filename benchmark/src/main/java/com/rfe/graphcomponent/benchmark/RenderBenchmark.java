@@ -0,0 +1,124 @@
+package com.rfe.graphcomponent.benchmark;
+
+import com.rfe.graphcomponent.core.AxisScale;
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.NearestPoint;
+import com.rfe.graphcomponent.core.PreparedSeries;
+import com.rfe.graphcomponent.core.SeriesStore;
+import com.rfe.graphcomponent.core.Viewport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Per-frame and per-touch work on a prepared series: transforming every sample to screen
+ * coordinates, decimating to the view width, fitting the y axis to a zoomed range and
+ * snapping the seek bar to the nearest point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+
+    /**
+     * The decimator, kept apart so only the decimation benchmark runs once per mode.
+     */
+    @State(Scope.Thread)
+    public static class Decimation {
+
+        @Param({"LTTB", "MIN_MAX"})
+        public Decimator.Mode mode;
+
+        private final Decimator decimator = new Decimator();
+
+        @Setup
+        public void prepare() {
+            decimator.setMode(mode);
+        }
+    }
+
+    private SeriesStore series;
+    private final Viewport viewport = new Viewport();
+    private float[] vertices;
+    private Decimator allSamples;
+    private float[] keys;
+    private int key;
+    private float zoomSpan;
+    private final int[] minMax = new int[2];
+    private final AxisScale yAxis = new AxisScale(true);
+
+    @Setup
+    public void prepare(SeriesData data) {
+        float[] xs = data.xs.clone();
+        float[] ys = data.ys.clone();
+        series = new SeriesStore();
+        series.setData(xs, ys, data.size);
+        PreparedSeries prepared = PreparedSeries.prepare(series, Decimator.Mode.NONE, WIDTH);
+
+        viewport.setPlotArea(0, 0, WIDTH, HEIGHT);
+        viewport.setDataRange(prepared.getMinX(), prepared.getMaxX(),
+                prepared.getBounds().getLowerBound(), prepared.getBounds().getUpperBound());
+        vertices = new float[data.size * 2];
+        allSamples = prepared.getDecimator();
+
+        Random random = new Random(7);
+        float span = prepared.getMaxX() - prepared.getMinX();
+        zoomSpan = span / 10;
+        keys = new float[1024];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = prepared.getMinX() + random.nextFloat() * span;
+    }
+
+    @Benchmark
+    public float[] transformAll() {
+        for (int i = 0; i < series.size(); i++) {
+            vertices[2 * i] = viewport.toScreenX(series.getX(i));
+            vertices[2 * i + 1] = viewport.toScreenY(series.getY(i));
+        }
+        return vertices;
+    }
+
+    @Benchmark
+    public int decimate(Decimation state) {
+        state.decimator.invalidate();
+        state.decimator.update(series, WIDTH);
+        return state.decimator.size();
+    }
+
+    /**
+     * What GraphComponent.setBounds does for every pan or zoom step: the y range of the
+     * visible samples from the min/max index, then the axis fitted to it.
+     */
+    @Benchmark
+    public float setBounds() {
+        key = (key + 1) & (keys.length - 1);
+        int from = series.ceilingIndex(keys[key]);
+        int to = series.floorIndex(keys[key] + zoomSpan) + 1;
+        if (to > from) {
+            series.findMinMax(from, to, minMax);
+            yAxis.update(series.getY(minMax[0]), series.getY(minMax[1]));
+        }
+        return yAxis.getUpperBound();
+    }
+
+    @Benchmark
+    public int findNearestPoint() {
+        key = (key + 1) & (keys.length - 1);
+        return NearestPoint.find(series, allSamples, 0, allSamples.size(), keys[key]);
+    }
+}
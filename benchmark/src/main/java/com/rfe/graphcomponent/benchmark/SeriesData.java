@@ -0,0 +1,51 @@
+package com.rfe.graphcomponent.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Generated speed trace shared by the benchmarks, parameterized by size. The samples are
+ * sorted by x unless a subclass rearranges them.
+ */
+@State(Scope.Benchmark)
+public class SeriesData {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    public float[] xs;
+    public float[] ys;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        xs = new float[size];
+        ys = new float[size];
+        float speed = 60;
+        for (int i = 0; i < size; i++) {
+            speed = Math.max(0, speed + (random.nextFloat() - 0.5f) * 4);
+            xs[i] = i * 0.02f;
+            ys[i] = speed;
+        }
+        arrange(random);
+    }
+
+    /**
+     * Reorders the generated samples; they stay sorted by x by default.
+     */
+    protected void arrange(Random random) {
+    }
+
+    protected void swap(int i, int j) {
+        float x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        float y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+}
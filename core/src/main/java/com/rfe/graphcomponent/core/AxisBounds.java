@@ -0,0 +1,67 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Rounded axis bounds and tick size covering a value range.
+ */
+public final class AxisBounds {
+
+    /**
+     * Ticks aimed for when no other density is given.
+     */
+    public static final int DEFAULT_TICK_COUNT = 4;
+
+    // Absorbs rounding errors of the divisions, so values on a tick are not pushed past it.
+    private static final double EPSILON = 1e-6;
+
+    private final float tickSize;
+    private final float lowerBound;
+    private final float upperBound;
+
+    public AxisBounds(float tickSize, float lowerBound, float upperBound) {
+        this.tickSize = tickSize;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    public static AxisBounds fromRange(float min, float max) {
+        return fromRange(min, max, DEFAULT_TICK_COUNT);
+    }
+
+    /**
+     * Returns the tightest bounds on ticks of {@link #niceStep} that span {@code [min, max]},
+     * which takes about {@code tickCount} ticks. A range on a single tick is widened by one
+     * step, so the bounds never coincide.
+     */
+    public static AxisBounds fromRange(float min, float max, int tickCount) {
+        double range = max - min;
+        if (range <= 0)
+            range = Math.max(Math.abs(max), 1);
+        float step = (float) niceStep(range, tickCount);
+
+        double lowerTick = Math.floor(min / step + EPSILON);
+        double upperTick = Math.max(Math.ceil(max / step - EPSILON), lowerTick + 1);
+        return new AxisBounds(step, step * (float) lowerTick, step * (float) upperTick);
+    }
+
+    /**
+     * Returns the smallest step of one significant digit, 1 to 10 times a power of ten, that
+     * splits {@code range} into at most {@code tickCount - 1} intervals.
+     */
+    public static double niceStep(double range, int tickCount) {
+        double rawStep = range / Math.max(tickCount - 1, 1);
+        double magnitude = Math.pow(10, Math.ceil(Math.log10(rawStep) - 1));
+        return Math.ceil(rawStep / magnitude - EPSILON) * magnitude;
+    }
+
+    public float getTickSize() {
+        return tickSize;
+    }
+
+    public float getLowerBound() {
+        return lowerBound;
+    }
+
+    public float getUpperBound() {
+        return upperBound;
+    }
+}
@@ -0,0 +1,211 @@
+package com.rfe.graphcomponent.core;
+
+import java.util.Arrays;
+
+/**
+ * Tick layout of one axis that stays put while the shown range moves a little, so streaming and
+ * zooming do not make the ticks jitter. Ticks are the multiples of a nice step; tick
+ * {@code k} of the step has the value {@code k * step}.
+ * <p>
+ * A value axis snaps its bounds outwards to ticks, and keeps them as long as the range stays
+ * inside and still fills at least the hysteresis fraction of them. A range axis spans exactly
+ * the range and only keeps its step while the number of intervals stays within the hysteresis
+ * around the density.
+ * <p>
+ * Labels and their measured widths are cached by tick, so they are formatted and measured once
+ * while their tick stays on the axis; changing the step drops the cache.
+ */
+public final class AxisScale {
+
+    /**
+     * Formats and measures tick labels.
+     */
+    public interface LabelStyle {
+
+        /**
+         * @param fractionDigits digits after the decimal point the step needs
+         */
+        String format(float value, int fractionDigits);
+
+        float measure(String label);
+    }
+
+    public static final float DEFAULT_HYSTERESIS = 0.5f;
+
+    // Labels cached at once; a power of two.
+    private static final int CACHE_SIZE = 64;
+
+    private final boolean snapBounds;
+    private int tickDensity = AxisBounds.DEFAULT_TICK_COUNT;
+    private float hysteresis = DEFAULT_HYSTERESIS;
+    private LabelStyle labelStyle = null;
+
+    private boolean valid = false;
+    private double step;
+    private int fractionDigits;
+    private float lowerBound, upperBound;
+    private long firstTick, lastTick;
+
+    private final long[] cachedTicks = new long[CACHE_SIZE];
+    private final String[] cachedLabels = new String[CACHE_SIZE];
+    private final float[] cachedWidths = new float[CACHE_SIZE];
+
+    /**
+     * Formats a value with the given number of fraction digits, followed by the unit if any,
+     * e.g. "42 km/h". The view and the offscreen renderers label axes and flags with it.
+     */
+    public static String formatValue(float value, int fractionDigits, String unit) {
+        String text = String.format("%." + fractionDigits + "f", value);
+        return unit.length() > 0 ? text + " " + unit : text;
+    }
+
+    /**
+     * @param snapBounds true for a value axis whose bounds snap to ticks, false for a range axis
+     *                   that spans exactly the range it is given
+     */
+    public AxisScale(boolean snapBounds) {
+        this.snapBounds = snapBounds;
+        Arrays.fill(cachedTicks, Long.MIN_VALUE);
+    }
+
+    /**
+     * Sets about how many ticks the axis shows; the actual count follows from the nice step.
+     */
+    public void setTickDensity(int tickDensity) {
+        if (tickDensity < 2)
+            throw new IllegalArgumentException("an axis needs at least 2 ticks");
+        this.tickDensity = tickDensity;
+        reset();
+    }
+
+    public int getTickDensity() {
+        return tickDensity;
+    }
+
+    /**
+     * Sets how far the range may shrink, as a fraction in (0, 1], before a smaller step is
+     * chosen. 1 recomputes the ticks on every change.
+     */
+    public void setHysteresis(float hysteresis) {
+        if (!(hysteresis > 0 && hysteresis <= 1))
+            throw new IllegalArgumentException("hysteresis must be in (0, 1]");
+        this.hysteresis = hysteresis;
+        reset();
+    }
+
+    public void setLabelStyle(LabelStyle labelStyle) {
+        this.labelStyle = labelStyle;
+        invalidateLabels();
+    }
+
+    /**
+     * Drops the cached labels, after the label style changed its format or text size.
+     */
+    public void invalidateLabels() {
+        Arrays.fill(cachedTicks, Long.MIN_VALUE);
+    }
+
+    /**
+     * Forgets the current ticks, so the next update fits the range afresh.
+     */
+    public void reset() {
+        valid = false;
+    }
+
+    /**
+     * Fits the axis to {@code [min, max]}.
+     *
+     * @return true if the step or the bounds changed
+     */
+    public boolean update(float min, float max) {
+        if (snapBounds) {
+            if (valid && min >= lowerBound && max <= upperBound
+                    && max - min >= hysteresis * (upperBound - lowerBound))
+                return false;
+            AxisBounds bounds = AxisBounds.fromRange(min, max, tickDensity);
+            return apply(bounds.getTickSize(), bounds.getLowerBound(), bounds.getUpperBound());
+        }
+
+        double range = max - min;
+        if (range <= 0)
+            range = Math.max(Math.abs(max), 1);
+        double newStep = step;
+        double intervals = range / step;
+        if (!valid || intervals < hysteresis * (tickDensity - 1)
+                || intervals > (tickDensity - 1) / hysteresis)
+            newStep = AxisBounds.niceStep(range, tickDensity);
+        return apply(newStep, min, max);
+    }
+
+    private boolean apply(double newStep, float lower, float upper) {
+        boolean stepChanged = !valid || newStep != step;
+        if (!stepChanged && lower == lowerBound && upper == upperBound)
+            return false;
+
+        if (stepChanged) {
+            step = newStep;
+            fractionDigits = Math.max(0, (int) -Math.floor(Math.log10(step) + 1e-6));
+            invalidateLabels();
+        }
+        lowerBound = lower;
+        upperBound = upper;
+        // Bounds that are ticks themselves may be off by rounding.
+        firstTick = (long) Math.ceil(lower / step - 1e-4);
+        lastTick = (long) Math.floor(upper / step + 1e-4);
+        valid = true;
+        return true;
+    }
+
+    public float getStep() {
+        return (float) step;
+    }
+
+    public float getLowerBound() {
+        return lowerBound;
+    }
+
+    public float getUpperBound() {
+        return upperBound;
+    }
+
+    public int getTickCount() {
+        return valid ? (int) Math.max(lastTick - firstTick + 1, 0) : 0;
+    }
+
+    /**
+     * Returns the value of the {@code i}-th tick from the lower bound.
+     */
+    public float getTickValue(int i) {
+        return (float) ((firstTick + i) * step);
+    }
+
+    /**
+     * Returns the label of the {@code i}-th tick, formatted only if it is not cached.
+     *
+     * @throws IllegalStateException if no label style was set
+     */
+    public String getLabel(int i) {
+        return cachedLabels[cache(i)];
+    }
+
+    /**
+     * Returns the measured width of the label of the {@code i}-th tick.
+     */
+    public float getLabelWidth(int i) {
+        return cachedWidths[cache(i)];
+    }
+
+    private int cache(int i) {
+        long tick = firstTick + i;
+        int slot = (int) (tick & (CACHE_SIZE - 1));
+        if (cachedTicks[slot] != tick) {
+            if (labelStyle == null)
+                throw new IllegalStateException("no label style set");
+            String label = labelStyle.format(getTickValue(i), fractionDigits);
+            cachedLabels[slot] = label;
+            cachedWidths[slot] = labelStyle.measure(label);
+            cachedTicks[slot] = tick;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,54 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Where the parts of a chart go within its bounds, shared by the view and offscreen renderers
+ * so both produce the same picture.
+ */
+public final class ChartLayout {
+
+    private ChartLayout() {
+    }
+
+    /**
+     * Places the plot area: below room for the seek bar and a flag three lines of text high,
+     * and inset by half the seek bar height on both sides, so the thumb can reach the first and
+     * the last sample.
+     *
+     * @param barHeight height of the seek bar, which is also the size of its thumb
+     */
+    public static void placePlotArea(Viewport viewport, int width, int height, int paddingLeft,
+                                     int paddingTop, int paddingBottom, int barHeight,
+                                     float textSize) {
+        float flagHeight = 3 * textSize;
+        viewport.setPlotArea(barHeight / 2 + paddingLeft,
+                paddingTop + flagHeight + barHeight,
+                (float) width - barHeight,
+                (float) height - paddingTop - paddingBottom - barHeight - flagHeight);
+    }
+
+    /**
+     * Returns the width decimation aims for: one sample per pixel of the plot area.
+     */
+    public static int getDecimationWidth(int width, int barHeight) {
+        return width - barHeight;
+    }
+
+    /**
+     * Returns true if {@code count} markers across a plot {@code plotWidth} pixels wide stay
+     * within {@code maxDensity} markers per pixel.
+     */
+    public static boolean showsMarkers(int count, float plotWidth, float maxDensity) {
+        return count <= maxDensity * plotWidth;
+    }
+
+    /**
+     * Returns the default marker density limit: one marker per marker diameter, so markers are
+     * drawn as long as evenly spread ones would not overlap. Denser ones merge into a band along
+     * the line that only costs drawing time.
+     *
+     * @param markerRadius the marker radius in pixels
+     */
+    public static float getDefaultMaxMarkerDensity(float markerRadius) {
+        return 1 / (2 * markerRadius);
+    }
+}
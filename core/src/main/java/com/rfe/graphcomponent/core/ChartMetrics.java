@@ -0,0 +1,191 @@
+package com.rfe.graphcomponent.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in timings and counters for the drawing and data preparation hot paths. Each phase keeps
+ * its last {@link #WINDOW} durations in a ring, from which {@link #snapshot()} derives rolling
+ * percentiles.
+ * <p>
+ * Recording never blocks: a sample claims its ring slot with an atomic increment and is
+ * published with a lazy set, so the draw thread and a preparation thread may record at the
+ * same time. Components that are not given an instance skip recording entirely, so disabled
+ * metrics cost a null check.
+ */
+public final class ChartMetrics {
+
+    public enum Phase {
+        /**
+         * A whole {@code onDraw} call.
+         */
+        FRAME,
+        /**
+         * Transforming decimated samples and grid lines to screen coordinates.
+         */
+        GEOMETRY,
+        GRID,
+        AREA,
+        PATH,
+        MARKERS,
+        FLAG,
+        /**
+         * Sorting new data by x.
+         */
+        SORT,
+        /**
+         * Building the min/max pyramid of new data.
+         */
+        INDEX,
+        /**
+         * Reading the corner values of new data.
+         */
+        CORNERS,
+        DECIMATE,
+        BOUNDS
+    }
+
+    public enum Counter {
+        FRAMES,
+        /**
+         * Decimated samples drawn into the static layer, summed over redraws.
+         */
+        POINTS_DRAWN,
+        /**
+         * Samples in the series at those same redraws, to compare with {@link #POINTS_DRAWN}.
+         */
+        POINTS_TOTAL,
+        STATIC_LAYER_HITS,
+        STATIC_LAYER_MISSES,
+        GEOMETRY_HITS,
+        GEOMETRY_MISSES,
+        DECIMATION_HITS,
+        DECIMATION_MISSES,
+        FLAG_HITS,
+        FLAG_MISSES
+    }
+
+    /**
+     * Durations kept per phase; a power of two.
+     */
+    public static final int WINDOW = 128;
+
+    private static final int PHASES = Phase.values().length;
+
+    private final AtomicLongArray durationWindows = new AtomicLongArray(PHASES * WINDOW);
+    private final AtomicIntegerArray cursors = new AtomicIntegerArray(PHASES);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    /**
+     * Records one duration of a phase, in nanoseconds.
+     */
+    public void record(Phase phase, long nanos) {
+        int slot = cursors.getAndIncrement(phase.ordinal()) & (WINDOW - 1);
+        durationWindows.lazySet(phase.ordinal() * WINDOW + slot, nanos);
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(Phase phase, long startNanos) {
+        record(phase, System.nanoTime() - startNanos);
+    }
+
+    public void add(Counter counter, long delta) {
+        counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    /**
+     * Counts a cache lookup as a hit or a miss.
+     */
+    public void countLookup(Counter hits, Counter misses, boolean hit) {
+        increment(hit ? hits : misses);
+    }
+
+    /**
+     * Copies the current window of every phase and the counters. May be called from any
+     * thread; samples recorded meanwhile may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[][] durations = new long[PHASES][];
+        for (int phase = 0; phase < PHASES; phase++) {
+            // The cursor only grows, so once it wrapped around the window is full.
+            int written = cursors.get(phase);
+            int count = written >= 0 && written < WINDOW ? written : WINDOW;
+            long[] window = new long[count];
+            for (int i = 0; i < count; i++)
+                window[i] = durationWindows.get(phase * WINDOW + i);
+            Arrays.sort(window);
+            durations[phase] = window;
+        }
+        long[] counts = new long[counters.length()];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = counters.get(i);
+        return new Snapshot(durations, counts);
+    }
+
+    /**
+     * Immutable copy of the metrics at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final long[][] durations;
+        private final long[] counts;
+
+        private Snapshot(long[][] durations, long[] counts) {
+            this.durations = durations;
+            this.counts = counts;
+        }
+
+        /**
+         * Returns the number of durations in the window of a phase, at most {@link #WINDOW}.
+         */
+        public int getSampleCount(Phase phase) {
+            return durations[phase.ordinal()].length;
+        }
+
+        /**
+         * Returns the duration in nanoseconds below which the fraction {@code quantile} of the
+         * window falls, or 0 if the phase was never recorded.
+         */
+        public long getPercentileNanos(Phase phase, double quantile) {
+            long[] window = durations[phase.ordinal()];
+            if (window.length == 0)
+                return 0;
+            int i = (int) Math.ceil(quantile * window.length) - 1;
+            return window[Math.max(0, Math.min(i, window.length - 1))];
+        }
+
+        public long getMedianNanos(Phase phase) {
+            return getPercentileNanos(phase, 0.5);
+        }
+
+        public long getMaxNanos(Phase phase) {
+            return getPercentileNanos(phase, 1);
+        }
+
+        public long getCount(Counter counter) {
+            return counts[counter.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Phase phase : Phase.values()) {
+                if (getSampleCount(phase) == 0)
+                    continue;
+                sb.append(String.format("%s p50=%.3fms p90=%.3fms p99=%.3fms%n", phase,
+                        getMedianNanos(phase) / 1e6, getPercentileNanos(phase, 0.9) / 1e6,
+                        getPercentileNanos(phase, 0.99) / 1e6));
+            }
+            for (Counter counter : Counter.values())
+                sb.append(counter).append('=').append(getCount(counter)).append('\n');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.rfe.graphcomponent.core;
+
+import java.util.Arrays;
+
+/**
+ * Reduces a series to roughly one or two samples per horizontal pixel. The result is a list of
+ * indices into the series, so every decimated point is a real sample. The result is cached
+ * until the width, the mode or the data changes.
+ */
+public class Decimator {
+
+    public enum Mode {
+        /**
+         * Every sample is drawn.
+         */
+        NONE,
+        /**
+         * Largest-triangle-three-buckets: one sample per pixel, chosen to keep the visual shape.
+         * For an indexed series each bucket offers only its lowest and highest sample, which
+         * the index finds without reading the bucket.
+         */
+        LTTB,
+        /**
+         * The lowest and the highest sample of every pixel column, so no peak is lost.
+         */
+        MIN_MAX
+    }
+
+    private Mode mode = Mode.LTTB;
+    private int[] indices = new int[0];
+    private int size = 0;
+    private boolean passThrough = true;
+
+    private Series cachedSeries = null;
+    private int cachedWidth = -1;
+    private int cachedFrom, cachedTo;
+    private final int[] columnMinMax = new int[2];
+    private int[] candidates = new int[0];
+
+    public Decimator() {
+    }
+
+    /**
+     * Creates a decimator holding the same result as {@code other}, which is left untouched.
+     */
+    public Decimator(Decimator other) {
+        mode = other.mode;
+        indices = other.passThrough ? indices : Arrays.copyOf(other.indices, other.size);
+        size = other.size;
+        passThrough = other.passThrough;
+        cachedSeries = other.cachedSeries;
+        cachedWidth = other.cachedWidth;
+        cachedFrom = other.cachedFrom;
+        cachedTo = other.cachedTo;
+    }
+
+    public void setMode(Mode mode) {
+        if (this.mode != mode) {
+            this.mode = mode;
+            invalidate();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Drops the cached result, e.g. after the samples of the current series were modified.
+     */
+    public void invalidate() {
+        cachedSeries = null;
+    }
+
+    /**
+     * Recomputes the decimated indices of the whole series if the series or the width changed
+     * since the last call.
+     *
+     * @return true if the result was recomputed
+     */
+    public boolean update(Series series, int width) {
+        return update(series, 0, series.size(), width);
+    }
+
+    /**
+     * Recomputes the decimated indices of the samples {@code [from, to)} if the series, the
+     * slice or the width changed since the last call. The indices still refer to the whole
+     * series.
+     *
+     * @return true if the result was recomputed
+     */
+    public boolean update(Series series, int from, int to, int width) {
+        if (series == cachedSeries && width == cachedWidth && from == cachedFrom && to == cachedTo)
+            return false;
+        cachedSeries = series;
+        cachedWidth = width;
+        cachedFrom = from;
+        cachedTo = to;
+
+        int count = to - from;
+        passThrough = mode == Mode.NONE || width <= 2 || count <= (mode == Mode.MIN_MAX ? 2 * width : width);
+        if (passThrough) {
+            size = count;
+        } else if (mode == Mode.LTTB && series.hasIndex()) {
+            indexedLargestTriangleThreeBuckets(series, from, to, width);
+        } else if (mode == Mode.LTTB) {
+            largestTriangleThreeBuckets(series, from, to, width);
+        } else if (series.hasIndex()) {
+            indexedMinMax(series, from, to, width);
+        } else {
+            minMax(series, from, to, width);
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the last update kept every sample of the slice, i.e. the i-th decimated
+     * sample is the i-th sample of the slice.
+     */
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    /**
+     * Returns the series index of the i-th decimated sample.
+     */
+    public int getIndex(int i) {
+        return passThrough ? cachedFrom + i : indices[i];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (indices.length < capacity)
+            indices = new int[capacity];
+    }
+
+    private void largestTriangleThreeBuckets(Series series, int from, int to, int threshold) {
+        int count = to - from;
+        ensureCapacity(threshold);
+
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int selected = from;
+        int n = 0;
+        indices[n++] = from;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = from + (int) (bucket * bucketSize) + 1;
+            int end = from + (int) ((bucket + 1) * bucketSize) + 1;
+
+            int nextStart = end;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * bucketSize) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += series.getX(i);
+                avgY += series.getY(i);
+            }
+            int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                avgX /= nextCount;
+                avgY /= nextCount;
+            } else {
+                avgX = series.getX(to - 1);
+                avgY = series.getY(to - 1);
+            }
+
+            float ax = series.getX(selected);
+            float ay = series.getY(selected);
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (series.getY(i) - ay)
+                        - (ax - series.getX(i)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            indices[n++] = maxIndex;
+            selected = maxIndex;
+        }
+
+        indices[n++] = to - 1;
+        size = n;
+    }
+
+    /**
+     * Same buckets as {@link #largestTriangleThreeBuckets}, but the candidates of each bucket
+     * are its lowest and highest sample from the series' min/max pyramid, and the average of
+     * the next bucket is taken over its candidates. The cost depends on the width, not the
+     * sample count, and no peak is lost.
+     */
+    private void indexedLargestTriangleThreeBuckets(Series series, int from, int to,
+                                                    int threshold) {
+        int count = to - from;
+        int buckets = threshold - 2;
+        ensureCapacity(threshold);
+        if (candidates.length < 2 * buckets)
+            candidates = new int[2 * buckets];
+
+        double bucketSize = (double) (count - 2) / buckets;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = from + (int) (bucket * bucketSize) + 1;
+            int end = Math.max(from + (int) ((bucket + 1) * bucketSize) + 1, start + 1);
+            series.findMinMax(start, end, columnMinMax);
+            candidates[2 * bucket] = columnMinMax[0];
+            candidates[2 * bucket + 1] = columnMinMax[1];
+        }
+
+        int selected = from;
+        int n = 0;
+        indices[n++] = from;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            double avgX, avgY;
+            if (bucket + 1 < buckets) {
+                int low = candidates[2 * bucket + 2];
+                int high = candidates[2 * bucket + 3];
+                avgX = (series.getX(low) + series.getX(high)) / 2.0;
+                avgY = (series.getY(low) + series.getY(high)) / 2.0;
+            } else {
+                avgX = series.getX(to - 1);
+                avgY = series.getY(to - 1);
+            }
+
+            float ax = series.getX(selected);
+            float ay = series.getY(selected);
+            int maxIndex = candidates[2 * bucket];
+            double maxArea = -1;
+            for (int c = 2 * bucket; c < 2 * bucket + 2; c++) {
+                int i = candidates[c];
+                double area = Math.abs((ax - avgX) * (series.getY(i) - ay)
+                        - (ax - series.getX(i)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            indices[n++] = maxIndex;
+            selected = maxIndex;
+        }
+
+        indices[n++] = to - 1;
+        size = n;
+    }
+
+    private void minMax(Series series, int from, int to, int columns) {
+        ensureCapacity(2 * columns + 2);
+
+        float minX = series.getX(from);
+        float range = series.getX(to - 1) - minX;
+        float columnsPerUnit = range > 0 ? columns / range : 0;
+
+        int n = 0;
+        indices[n++] = from;
+        int column = -1;
+        int minIndex = -1;
+        int maxIndex = -1;
+        for (int i = from + 1; i < to - 1; i++) {
+            int c = Math.min((int) ((series.getX(i) - minX) * columnsPerUnit), columns - 1);
+            if (c != column) {
+                n = flushColumn(n, minIndex, maxIndex);
+                column = c;
+                minIndex = i;
+                maxIndex = i;
+            } else {
+                float y = series.getY(i);
+                if (y < series.getY(minIndex))
+                    minIndex = i;
+                if (y > series.getY(maxIndex))
+                    maxIndex = i;
+            }
+        }
+        n = flushColumn(n, minIndex, maxIndex);
+        indices[n++] = to - 1;
+        size = n;
+    }
+
+    /**
+     * Same columns as {@link #minMax}, but each column is located by binary search and answered
+     * by the series' min/max pyramid, so the cost depends on the width, not the sample count.
+     */
+    private void indexedMinMax(Series series, int from, int to, int columns) {
+        ensureCapacity(2 * columns + 2);
+
+        float minX = series.getX(from);
+        float range = series.getX(to - 1) - minX;
+
+        int n = 0;
+        indices[n++] = from;
+        int last = to - 1;
+        int i = from + 1;
+        for (int column = 0; column < columns && i < last; column++) {
+            int end = last;
+            if (column < columns - 1) {
+                end = series.ceilingIndex(minX + (column + 1) * range / columns);
+                end = Math.max(i, Math.min(end, last));
+            }
+            if (end > i) {
+                series.findMinMax(i, end, columnMinMax);
+                n = flushColumn(n, columnMinMax[0], columnMinMax[1]);
+                i = end;
+            }
+        }
+        indices[n++] = last;
+        size = n;
+    }
+
+    private int flushColumn(int n, int minIndex, int maxIndex) {
+        if (minIndex < 0)
+            return n;
+        if (minIndex == maxIndex) {
+            indices[n++] = minIndex;
+        } else {
+            indices[n++] = Math.min(minIndex, maxIndex);
+            indices[n++] = Math.max(minIndex, maxIndex);
+        }
+        return n;
+    }
+}
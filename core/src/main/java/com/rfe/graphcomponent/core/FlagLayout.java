@@ -0,0 +1,101 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Placement of the selection flag: a pole from the selected sample up to a flag carrying its
+ * label. The flag points left where it would run past the right edge of the chart.
+ */
+public final class FlagLayout {
+
+    /**
+     * Floats written by {@link #outline}: five x/y vertices.
+     */
+    public static final int OUTLINE_SIZE = 10;
+
+    private float x, y;
+    private float poleHeight, height, width;
+    private float textX, textY;
+
+    /**
+     * Lays out the flag for the sample at {@code (x, y)}.
+     *
+     * @param textWidth  measured width of the label
+     * @param lineHeight height of one line of label text, descent minus ascent
+     * @param chartWidth width of the whole chart, which the flag must not run past
+     */
+    public void layout(float x, float y, float textWidth, float lineHeight, float chartWidth) {
+        float h = lineHeight * 3;
+        float w = textWidth * 1.5f;
+
+        this.x = x;
+        this.y = y;
+        poleHeight = h / 3;
+        height = h;
+        width = x + w > chartWidth ? -w : w;
+
+        float textOffset = x + w < chartWidth ? w / 6 : -w * 5 / 6;
+        textX = x + textOffset;
+        textY = y - h * 0.5f;
+    }
+
+    /**
+     * Writes the outline of a flag anchored at {@code (x, y)} into {@code out}: a pole up to
+     * {@code h2} and a flag from {@code h1} to {@code h2} above the anchor, {@code w} wide to
+     * the right, or to the left if {@code w} is negative.
+     */
+    public static void outline(float x, float y, float h1, float h2, float w, float[] out) {
+        out[0] = x;
+        out[1] = y;
+        out[2] = x;
+        out[3] = y - h2;
+        out[4] = x + w;
+        out[5] = y - h2;
+        out[6] = x + w;
+        out[7] = y - h1;
+        out[8] = x;
+        out[9] = y - h1;
+    }
+
+    public void outline(float[] out) {
+        outline(x, y, poleHeight, height, width, out);
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Returns the height of the pole below the flag.
+     */
+    public float getPoleHeight() {
+        return poleHeight;
+    }
+
+    /**
+     * Returns the height of the top of the flag above the anchor.
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the signed width of the flag, negative if it points left.
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    public float getTextX() {
+        return textX;
+    }
+
+    /**
+     * Returns the baseline of the label.
+     */
+    public float getTextY() {
+        return textY;
+    }
+}
@@ -0,0 +1,131 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Grid lines and tick label positions of a plot, laid out from its viewport and axes. Lines are
+ * kept as segments for a single batched draw call. Buffers only grow, so laying out the grid
+ * again does not allocate.
+ */
+public final class GridLayout {
+
+    /**
+     * Distance in pixels of labels from their grid line and from the plot edges.
+     */
+    public static final float LABEL_INSET = 10;
+
+    private float[] lines = new float[0];
+    private int lineCount = 0;
+    private float yLabelX;
+    private float[] yLabelY = new float[0];
+    private int yLabelCount = 0;
+    private int[] xLabelTicks = new int[0];
+    private float[] xLabelX = new float[0];
+    private float xLabelY;
+    private int xLabelCount = 0;
+
+    /**
+     * Lays out a horizontal line and a label for every tick of {@code yAxis} and, unless
+     * {@code xAxis} is null, a vertical line for every tick of the x axis. X labels are
+     * centered under their line; those that would overlap the y labels, the previous label or
+     * the right edge are left out. Label widths come from the axis caches.
+     */
+    public void layout(Viewport viewport, AxisScale yAxis, AxisScale xAxis) {
+        float left = viewport.getLeft();
+        float right = left + viewport.getWidth();
+        float top = viewport.getTop();
+        float bottom = top + viewport.getHeight();
+        int yCount = yAxis.getTickCount();
+        int xCount = xAxis != null ? xAxis.getTickCount() : 0;
+        if (lines.length < 4 * (yCount + xCount))
+            lines = new float[4 * (yCount + xCount)];
+        if (yLabelY.length < yCount)
+            yLabelY = new float[yCount];
+        if (xLabelTicks.length < xCount) {
+            xLabelTicks = new int[xCount];
+            xLabelX = new float[xCount];
+        }
+
+        float yLabelsRight = left;
+        yLabelX = left + LABEL_INSET;
+        for (int i = 0; i < yCount; i++) {
+            float y = viewport.toScreenY(yAxis.getTickValue(i));
+            lines[4 * i] = left;
+            lines[4 * i + 1] = y;
+            lines[4 * i + 2] = right;
+            lines[4 * i + 3] = y;
+            yLabelY[i] = y - LABEL_INSET;
+            yLabelsRight = Math.max(yLabelsRight, yLabelX + yAxis.getLabelWidth(i));
+        }
+        yLabelCount = yCount;
+
+        int labels = 0;
+        float labelsRight = yLabelsRight;
+        for (int i = 0; i < xCount; i++) {
+            float x = viewport.toScreenX(xAxis.getTickValue(i));
+            int line = 4 * (yCount + i);
+            lines[line] = x;
+            lines[line + 1] = top;
+            lines[line + 2] = x;
+            lines[line + 3] = bottom;
+
+            float width = xAxis.getLabelWidth(i);
+            float labelLeft = x - width / 2;
+            if (labelLeft < labelsRight + LABEL_INSET || labelLeft + width > right)
+                continue;
+            xLabelTicks[labels] = i;
+            xLabelX[labels] = labelLeft;
+            labels++;
+            labelsRight = labelLeft + width;
+        }
+        xLabelY = bottom - LABEL_INSET;
+        xLabelCount = labels;
+        lineCount = yCount + xCount;
+    }
+
+    /**
+     * Returns the grid lines as x0, y0, x1, y1 per line; see {@link #getLineCount()}.
+     */
+    public float[] getLines() {
+        return lines;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the number of y labels, one per tick of the y axis.
+     */
+    public int getYLabelCount() {
+        return yLabelCount;
+    }
+
+    public float getYLabelX() {
+        return yLabelX;
+    }
+
+    /**
+     * Returns the baseline of the label of the {@code i}-th y tick.
+     */
+    public float getYLabelY(int i) {
+        return yLabelY[i];
+    }
+
+    public int getXLabelCount() {
+        return xLabelCount;
+    }
+
+    /**
+     * Returns the x axis tick the {@code i}-th x label belongs to.
+     */
+    public int getXLabelTick(int i) {
+        return xLabelTicks[i];
+    }
+
+    public float getXLabelX(int i) {
+        return xLabelX[i];
+    }
+
+    public float getXLabelY() {
+        return xLabelY;
+    }
+}
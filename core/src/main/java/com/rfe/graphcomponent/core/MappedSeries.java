@@ -0,0 +1,209 @@
+package com.rfe.graphcomponent.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A series read lazily from a memory-mapped {@link SeriesFile}. Samples stay in the file and
+ * are paged in by the OS as they are read, so opening even a very large recording costs almost
+ * no heap. The corner values come from the file header.
+ * <p>
+ * Reading samples does not change any buffer state, so {@link #getX} and {@link #getY} may be
+ * called from several threads.
+ */
+public final class MappedSeries implements Series {
+
+    /**
+     * Samples per bucket of the min/max pyramid. Larger than for heap series, so the pyramid of
+     * a recording with tens of millions of samples still takes only a few megabytes.
+     */
+    private static final int INDEX_BUCKET_SIZE = 256;
+
+    private final int count;
+    private final float minX, maxX, minY, maxY;
+
+    // Float encoding.
+    private final FloatBuffer xs, ys;
+
+    // Delta encoding.
+    private final FloatBuffer bases;
+    private final CharBuffer xOffsets;
+    private final ShortBuffer yOffsets;
+    private final float xQuantum, yQuantum;
+    private final int blockSize;
+
+    private MinMaxPyramid index;
+
+    MappedSeries(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != SeriesFile.MAGIC)
+            throw new IOException("not a series file");
+        int version = buffer.getShort(4);
+        if (version != SeriesFile.VERSION)
+            throw new IOException("unsupported series file version " + version);
+        int encoding = buffer.getShort(6);
+        count = buffer.getInt(8);
+        minX = buffer.getFloat(12);
+        maxX = buffer.getFloat(16);
+        minY = buffer.getFloat(20);
+        maxY = buffer.getFloat(24);
+        xQuantum = buffer.getFloat(28);
+        yQuantum = buffer.getFloat(32);
+        blockSize = buffer.getInt(36);
+
+        long expected;
+        int position = SeriesFile.HEADER_SIZE;
+        if (encoding == SeriesFile.ENCODING_FLOAT) {
+            expected = SeriesFile.HEADER_SIZE + 8L * count;
+            checkLength(buffer, count, expected);
+            xs = view(buffer, position, 4L * count).asFloatBuffer();
+            ys = view(buffer, position + 4 * count, 4L * count).asFloatBuffer();
+            bases = null;
+            xOffsets = null;
+            yOffsets = null;
+        } else if (encoding == SeriesFile.ENCODING_DELTA) {
+            if (blockSize < 1)
+                throw new IOException("invalid block size " + blockSize);
+            long blocks = ((long) count + blockSize - 1) / blockSize;
+            expected = SeriesFile.HEADER_SIZE + 8L * blocks + 4L * count;
+            checkLength(buffer, count, expected);
+            bases = view(buffer, position, 8L * blocks).asFloatBuffer();
+            position += (int) (8 * blocks);
+            xOffsets = view(buffer, position, 2L * count).asCharBuffer();
+            yOffsets = view(buffer, position + 2 * count, 2L * count).asShortBuffer();
+            xs = null;
+            ys = null;
+        } else {
+            throw new IOException("unknown series encoding " + encoding);
+        }
+    }
+
+    private static void checkLength(ByteBuffer buffer, int count, long expected)
+            throws IOException {
+        if (count < 0 || buffer.capacity() < expected)
+            throw new IOException("series file is truncated: " + buffer.capacity() + " of "
+                    + expected + " bytes");
+    }
+
+    private static ByteBuffer view(ByteBuffer buffer, int position, long length) {
+        ByteBuffer copy = buffer.duplicate();
+        copy.position(position);
+        copy.limit((int) (position + length));
+        return copy.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public float getX(int i) {
+        if (xs != null)
+            return xs.get(i);
+        return bases.get(2 * (i / blockSize)) + xOffsets.get(i) * xQuantum;
+    }
+
+    @Override
+    public float getY(int i) {
+        if (ys != null)
+            return ys.get(i);
+        return bases.get(2 * (i / blockSize) + 1) + yOffsets.get(i) * yQuantum;
+    }
+
+    @Override
+    public int ceilingIndex(float x) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getX(mid) < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    public int floorIndex(float x) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getX(mid) <= x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo - 1;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    @Override
+    public float getMinY() {
+        return minY;
+    }
+
+    @Override
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Builds the min/max pyramid, which reads every sample once. Meant to run off the UI thread
+     * before the series is shown.
+     */
+    public void buildIndex() {
+        MinMaxPyramid pyramid = new MinMaxPyramid(count, INDEX_BUCKET_SIZE) {
+            @Override
+            float value(int slot) {
+                return getY(slot);
+            }
+        };
+        pyramid.build();
+        index = pyramid;
+    }
+
+    @Override
+    public boolean hasIndex() {
+        return index != null;
+    }
+
+    /**
+     * Scans the range if {@link #buildIndex()} was not called.
+     */
+    @Override
+    public void findMinMax(int from, int to, int[] out) {
+        if (index != null) {
+            index.query(from, to, out);
+            return;
+        }
+        int min = from;
+        int max = from;
+        for (int i = from + 1; i < to; i++) {
+            float y = getY(i);
+            if (y < getY(min))
+                min = i;
+            if (y > getY(max))
+                max = i;
+        }
+        out[0] = min;
+        out[1] = max;
+    }
+}
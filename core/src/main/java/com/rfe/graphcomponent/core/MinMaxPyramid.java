@@ -0,0 +1,190 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Hierarchical min/max index over y values. Level 0 summarizes buckets of a fixed number of
+ * samples, and every further level halves the number of buckets, so the lowest and highest
+ * sample of any range is found in O(bucket size + log n). First and last samples of a bucket
+ * are not stored; they are read from the series at the bucket bounds.
+ * <p>
+ * Positions are slots of the underlying storage, read through {@link #value(int)}. A slot that
+ * is overwritten is re-indexed with {@link #update(int)}, which is how a ring buffer keeps the
+ * index current while appending. Queries only read the index.
+ */
+abstract class MinMaxPyramid {
+
+    static final int BUCKET_SIZE = 16;
+
+    private final int size;
+    private final int bucketSize;
+    private final float[][] minValue;
+    private final float[][] maxValue;
+    private final int[][] minSlot;
+    private final int[][] maxSlot;
+
+    /**
+     * Allocates an index over the slots {@code [0, size)}. Nothing is indexed until
+     * {@link #build()} is called or the slots are passed to {@link #update(int)}.
+     */
+    MinMaxPyramid(int size, int bucketSize) {
+        this.size = size;
+        this.bucketSize = bucketSize;
+
+        int levels = 1;
+        for (int n = buckets(size, bucketSize); n > 1; n = (n + 1) / 2)
+            levels++;
+        minValue = new float[levels][];
+        maxValue = new float[levels][];
+        minSlot = new int[levels][];
+        maxSlot = new int[levels][];
+        int n = buckets(size, bucketSize);
+        for (int level = 0; level < levels; level++) {
+            minValue[level] = new float[n];
+            maxValue[level] = new float[n];
+            minSlot[level] = new int[n];
+            maxSlot[level] = new int[n];
+            n = (n + 1) / 2;
+        }
+    }
+
+    /**
+     * Returns an index over {@code ys[0..size)} with {@link #BUCKET_SIZE} samples per bucket.
+     */
+    static MinMaxPyramid over(final float[] ys, int size) {
+        return new MinMaxPyramid(size, BUCKET_SIZE) {
+            @Override
+            float value(int slot) {
+                return ys[slot];
+            }
+        };
+    }
+
+    abstract float value(int slot);
+
+    /**
+     * Indexes every slot. An index over no slots stays empty.
+     */
+    void build() {
+        if (size == 0)
+            return;
+        for (int bucket = 0; bucket < minValue[0].length; bucket++)
+            scanBucket(bucket);
+        for (int level = 1; level < minValue.length; level++) {
+            for (int bucket = 0; bucket < minValue[level].length; bucket++)
+                combine(level, bucket);
+        }
+    }
+
+    private static int buckets(int size, int bucketSize) {
+        return Math.max(1, (size + bucketSize - 1) / bucketSize);
+    }
+
+    /**
+     * Re-indexes the bucket holding {@code slot} and every bucket above it.
+     */
+    void update(int slot) {
+        int bucket = slot / bucketSize;
+        scanBucket(bucket);
+        for (int level = 1; level < minValue.length; level++) {
+            bucket /= 2;
+            combine(level, bucket);
+        }
+    }
+
+    private void scanBucket(int bucket) {
+        int from = bucket * bucketSize;
+        int to = Math.min(from + bucketSize, size);
+        int min = from;
+        int max = from;
+        float minY = value(from);
+        float maxY = minY;
+        for (int i = from + 1; i < to; i++) {
+            float y = value(i);
+            if (y < minY) {
+                min = i;
+                minY = y;
+            }
+            if (y > maxY) {
+                max = i;
+                maxY = y;
+            }
+        }
+        minSlot[0][bucket] = min;
+        maxSlot[0][bucket] = max;
+        minValue[0][bucket] = minY;
+        maxValue[0][bucket] = maxY;
+    }
+
+    private void combine(int level, int bucket) {
+        int left = 2 * bucket;
+        int right = Math.min(left + 1, minValue[level - 1].length - 1);
+        int l = level - 1;
+        if (minValue[l][right] < minValue[l][left]) {
+            minValue[level][bucket] = minValue[l][right];
+            minSlot[level][bucket] = minSlot[l][right];
+        } else {
+            minValue[level][bucket] = minValue[l][left];
+            minSlot[level][bucket] = minSlot[l][left];
+        }
+        if (maxValue[l][right] > maxValue[l][left]) {
+            maxValue[level][bucket] = maxValue[l][right];
+            maxSlot[level][bucket] = maxSlot[l][right];
+        } else {
+            maxValue[level][bucket] = maxValue[l][left];
+            maxSlot[level][bucket] = maxSlot[l][left];
+        }
+    }
+
+    /**
+     * Finds the slots of the lowest and highest value in {@code [from, to)}, which must not be
+     * empty, and stores them in {@code out[0]} and {@code out[1]}. The running result is kept
+     * in {@code out} only, so threads may query the same index at the same time.
+     */
+    void query(int from, int to, int[] out) {
+        out[0] = from;
+        out[1] = from;
+
+        int lo = (from + bucketSize - 1) / bucketSize;
+        int hi = to / bucketSize;
+        if (lo >= hi) {
+            scan(from, to, out);
+        } else {
+            scan(from, lo * bucketSize, out);
+            scan(hi * bucketSize, to, out);
+            for (int level = 0; lo < hi; level++) {
+                if ((lo & 1) != 0)
+                    take(level, lo++, out);
+                if ((hi & 1) != 0)
+                    take(level, --hi, out);
+                lo /= 2;
+                hi /= 2;
+            }
+        }
+    }
+
+    private void scan(int from, int to, int[] out) {
+        int min = out[0];
+        int max = out[1];
+        float minY = value(min);
+        float maxY = value(max);
+        for (int i = from; i < to; i++) {
+            float y = value(i);
+            if (y < minY) {
+                min = i;
+                minY = y;
+            }
+            if (y > maxY) {
+                max = i;
+                maxY = y;
+            }
+        }
+        out[0] = min;
+        out[1] = max;
+    }
+
+    private void take(int level, int bucket, int[] out) {
+        if (minValue[level][bucket] < value(out[0]))
+            out[0] = minSlot[level][bucket];
+        if (maxValue[level][bucket] > value(out[1]))
+            out[1] = maxSlot[level][bucket];
+    }
+}
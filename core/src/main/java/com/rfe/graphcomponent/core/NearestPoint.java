@@ -0,0 +1,36 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Binary searches for the sample closest to an x value.
+ */
+public final class NearestPoint {
+
+    private NearestPoint() {
+    }
+
+    /**
+     * Returns the position in {@code [from, to)} of the decimated sample whose x is closest to
+     * {@code x}, or -1 if the range is empty. Of two equally close samples the first is taken,
+     * so the choice is stable. Decimated samples keep the order of the series, so they are
+     * sorted by x.
+     */
+    public static int find(Series series, Decimator decimator, int from, int to, float x) {
+        if (to <= from)
+            return -1;
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (series.getX(decimator.getIndex(mid)) < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        // lo is the first sample at or past x, unless all lie before it; the sample before may
+        // be closer.
+        if (lo > from && x - series.getX(decimator.getIndex(lo - 1))
+                <= Math.abs(series.getX(decimator.getIndex(lo)) - x))
+            return lo - 1;
+        return lo;
+    }
+}
@@ -0,0 +1,152 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * A series with everything the chart derives from it before drawing: sorted samples, corner
+ * values, axis bounds and decimation. Instances are built off the UI
+ * thread by {@link #prepare} and are not modified afterwards.
+ */
+public final class PreparedSeries {
+
+    private final Series series;
+    private final float minX, maxX, minY, maxY;
+    private final AxisBounds bounds;
+    private final Decimator decimator;
+
+    private PreparedSeries(Series series, float minX, float maxX, float minY, float maxY,
+                           AxisBounds bounds, Decimator decimator) {
+        this.series = series;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.bounds = bounds;
+        this.decimator = decimator;
+    }
+
+    /**
+     * Sorts and indexes the series in place and derives the rest of the snapshot from it.
+     * Returns null if the calling thread was interrupted in between, which is how stale jobs
+     * are cancelled. An empty series gives a snapshot that shows no data.
+     *
+     * @param width the plot width in pixels used for decimation
+     * @throws NumberFormatException if the series has negative x or y values
+     */
+    public static PreparedSeries prepare(SeriesStore series, Decimator.Mode mode, int width) {
+        return prepare(series, mode, width, null);
+    }
+
+    /**
+     * Like {@link #prepare(SeriesStore, Decimator.Mode, int)}, recording the time of
+     * every step into {@code metrics} unless it is null.
+     */
+    public static PreparedSeries prepare(SeriesStore series, Decimator.Mode mode, int width,
+                                         ChartMetrics metrics) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        series.sortByX();
+        if (metrics != null)
+            start = recordStep(metrics, ChartMetrics.Phase.SORT, start);
+        if (Thread.interrupted())
+            return null;
+        series.buildIndex();
+        if (metrics != null)
+            recordStep(metrics, ChartMetrics.Phase.INDEX, start);
+        return prepare((Series) series, mode, width, metrics);
+    }
+
+    /**
+     * Derives the snapshot from a series that is already sorted by x, e.g. a
+     * {@link MappedSeries} whose index was built.
+     *
+     * @see #prepare(SeriesStore, Decimator.Mode, int)
+     */
+    public static PreparedSeries prepare(Series series, Decimator.Mode mode, int width) {
+        return prepare(series, mode, width, null);
+    }
+
+    public static PreparedSeries prepare(Series series, Decimator.Mode mode, int width,
+                                         ChartMetrics metrics) {
+        if (Thread.interrupted())
+            return null;
+
+        if (series.isEmpty())
+            return empty(series);
+
+        long start = metrics != null ? System.nanoTime() : 0;
+        float minX = series.getX(0);
+        float maxX = series.getX(series.size() - 1);
+        float minY = series.getMinY();
+        float maxY = series.getMaxY();
+        if (minX < 0 || minY < 0)
+            throw new NumberFormatException();
+        if (metrics != null)
+            start = recordStep(metrics, ChartMetrics.Phase.CORNERS, start);
+        if (Thread.interrupted())
+            return null;
+
+        Decimator decimator = new Decimator();
+        decimator.setMode(mode);
+        decimator.update(series, width);
+        if (metrics != null)
+            start = recordStep(metrics, ChartMetrics.Phase.DECIMATE, start);
+        if (Thread.interrupted())
+            return null;
+
+        AxisBounds bounds = AxisBounds.fromRange(minY, maxY);
+        if (metrics != null)
+            recordStep(metrics, ChartMetrics.Phase.BOUNDS, start);
+
+        return new PreparedSeries(series, minX, maxX, minY, maxY, bounds, decimator);
+    }
+
+    /**
+     * Returns the snapshot of an empty series, which has no corner values and decimates to no
+     * samples; a chart shows no data for it.
+     */
+    private static PreparedSeries empty(Series series) {
+        return new PreparedSeries(series, Float.NaN, Float.NaN, Float.NaN, Float.NaN,
+                AxisBounds.fromRange(0, 0), new Decimator());
+    }
+
+    /**
+     * Records the time since {@code start} and returns the current time, where the next step
+     * starts.
+     */
+    private static long recordStep(ChartMetrics metrics, ChartMetrics.Phase phase, long start) {
+        long now = System.nanoTime();
+        metrics.record(phase, now - start);
+        return now;
+    }
+
+    public Series getSeries() {
+        return series;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    public AxisBounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Returns the decimator holding the result for the width passed to {@link #prepare}. It
+     * must not be updated; a view showing the snapshot decimates a copy, so one snapshot can be
+     * shown again, e.g. from a cache.
+     */
+    public Decimator getDecimator() {
+        return decimator;
+    }
+}
@@ -0,0 +1,51 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Read access to a series of samples sorted by x. The chart algorithms only read samples
+ * through this interface, so a series may live in heap arrays ({@link SeriesStore}) or in a
+ * memory-mapped file ({@link MappedSeries}).
+ * <p>
+ * Reading does not modify a series, so several threads may read one at the same time as long
+ * as no samples are set or appended meanwhile.
+ */
+public interface Series {
+
+    int size();
+
+    boolean isEmpty();
+
+    float getX(int i);
+
+    float getY(int i);
+
+    /**
+     * Returns the lowest index whose x is at least {@code x}, or {@link #size()} if there is none.
+     */
+    int ceilingIndex(float x);
+
+    /**
+     * Returns the highest index whose x is at most {@code x}, or -1 if there is none.
+     */
+    int floorIndex(float x);
+
+    /**
+     * Returns the lowest y of a non-empty series.
+     */
+    float getMinY();
+
+    /**
+     * Returns the highest y of a non-empty series.
+     */
+    float getMaxY();
+
+    /**
+     * Returns true if {@link #findMinMax} is answered by an index instead of a scan.
+     */
+    boolean hasIndex();
+
+    /**
+     * Finds the indices of the lowest and highest y among the samples in {@code [from, to)},
+     * which must not be empty, and stores them in {@code out[0]} and {@code out[1]}.
+     */
+    void findMinMax(int from, int to, int[] out);
+}
@@ -0,0 +1,231 @@
+package com.rfe.graphcomponent.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary file format for recorded series, read through {@link MappedSeries} without loading the
+ * samples onto the heap. All values are little-endian.
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE} byte header:
+ * <pre>
+ *  0  int   magic "GCSF"
+ *  4  short version
+ *  6  short encoding, {@link #ENCODING_FLOAT} or {@link #ENCODING_DELTA}
+ *  8  int   sample count
+ * 12  float min x, max x, min y, max y
+ * 28  float x quantum, y quantum (delta encoding only)
+ * 36  int   samples per block (delta encoding only)
+ * 40  reserved
+ * </pre>
+ * With {@link #ENCODING_FLOAT} the header is followed by all x values, then all y values, as
+ * floats. With {@link #ENCODING_DELTA} it is followed by a float x/y base per block, then an
+ * unsigned 16-bit x offset and then a signed 16-bit y offset per sample, counted in quanta from
+ * the base of the sample's block. Delta encoding halves the file size at the cost of rounding
+ * samples to the quanta.
+ * <p>
+ * Samples are sorted by x. A single file holds at most about 268 million float samples, the
+ * limit of one mapping.
+ */
+public final class SeriesFile {
+
+    public static final int MAGIC = 0x46534347;
+    public static final int VERSION = 1;
+    public static final int ENCODING_FLOAT = 0;
+    public static final int ENCODING_DELTA = 1;
+    public static final int HEADER_SIZE = 48;
+    public static final int DELTA_BLOCK_SIZE = 256;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private SeriesFile() {
+    }
+
+    /**
+     * Maps the file into memory. Only the header is read; samples are paged in as they are read.
+     *
+     * @throws IOException if the file cannot be read or is not a valid series file
+     */
+    public static MappedSeries open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE)
+                throw new IOException(file + " has an invalid size of " + length + " bytes");
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedSeries(buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes {@code count} samples, which must be sorted by x, as floats.
+     */
+    public static void write(File file, float[] xs, float[] ys, int count) throws IOException {
+        checkSorted(xs, count);
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        Writer writer = new Writer(file);
+        try {
+            writer.header(ENCODING_FLOAT, count, count > 0 ? xs[0] : 0,
+                    count > 0 ? xs[count - 1] : 0, minY, maxY, 0, 0, 0);
+            for (int i = 0; i < count; i++)
+                writer.ensure(4).putFloat(xs[i]);
+            for (int i = 0; i < count; i++)
+                writer.ensure(4).putFloat(ys[i]);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes {@code count} samples, which must be sorted by x, delta encoded. Values are rounded
+     * to multiples of the quanta away from the base of their block; x offsets are rounded down,
+     * so decoded samples stay sorted.
+     *
+     * @throws IllegalArgumentException if a sample is too far from its block base to be encoded
+     *                                  with the given quanta
+     */
+    public static void writeDelta(File file, float[] xs, float[] ys, int count, float xQuantum,
+                                  float yQuantum) throws IOException {
+        checkSorted(xs, count);
+        if (!(xQuantum > 0) || !(yQuantum > 0))
+            throw new IllegalArgumentException("quanta must be positive");
+
+        int blocks = (count + DELTA_BLOCK_SIZE - 1) / DELTA_BLOCK_SIZE;
+        float[] bases = new float[2 * blocks];
+        char[] xOffsets = new char[count];
+        short[] yOffsets = new short[count];
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        float lastX = -Float.MAX_VALUE;
+        for (int block = 0; block < blocks; block++) {
+            int from = block * DELTA_BLOCK_SIZE;
+            int to = Math.min(from + DELTA_BLOCK_SIZE, count);
+            float blockMinY = ys[from];
+            float blockMaxY = ys[from];
+            for (int i = from + 1; i < to; i++) {
+                blockMinY = Math.min(blockMinY, ys[i]);
+                blockMaxY = Math.max(blockMaxY, ys[i]);
+            }
+            float baseX = xs[from];
+            float baseY = (blockMinY + blockMaxY) / 2;
+            bases[2 * block] = baseX;
+            bases[2 * block + 1] = baseY;
+
+            for (int i = from; i < to; i++) {
+                long dx = (long) Math.floor((xs[i] - baseX) / xQuantum);
+                long dy = Math.round((ys[i] - baseY) / yQuantum);
+                // The chart rejects negative values, so rounding must not push a zero below it.
+                if (ys[i] >= 0 && baseY + dy * yQuantum < 0)
+                    dy++;
+                if (dx > Character.MAX_VALUE || dy < Short.MIN_VALUE || dy > Short.MAX_VALUE)
+                    throw new IllegalArgumentException("sample " + i + " cannot be encoded with "
+                            + "16-bit offsets; use larger quanta");
+                xOffsets[i] = (char) dx;
+                yOffsets[i] = (short) dy;
+
+                // Decode exactly like MappedSeries, so the header matches what is read back.
+                float x = baseX + xOffsets[i] * xQuantum;
+                float y = baseY + yOffsets[i] * yQuantum;
+                if (x < lastX)
+                    throw new IllegalArgumentException("sample " + i + " is out of order after "
+                            + "rounding; use a smaller x quantum");
+                lastX = x;
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+
+        Writer writer = new Writer(file);
+        try {
+            writer.header(ENCODING_DELTA, count, count > 0 ? xs[0] : 0, count > 0 ? lastX : 0,
+                    minY, maxY, xQuantum, yQuantum, DELTA_BLOCK_SIZE);
+            for (float base : bases)
+                writer.ensure(4).putFloat(base);
+            for (char offset : xOffsets)
+                writer.ensure(2).putChar(offset);
+            for (short offset : yOffsets)
+                writer.ensure(2).putShort(offset);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void checkSorted(float[] xs, int count) {
+        for (int i = 1; i < count; i++) {
+            if (xs[i] < xs[i - 1])
+                throw new IllegalArgumentException("samples must be sorted by x");
+        }
+    }
+
+    /**
+     * Buffers little-endian values and writes them through a file channel.
+     */
+    private static final class Writer {
+
+        private final FileOutputStream out;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        Writer(File file) throws IOException {
+            out = new FileOutputStream(file);
+            channel = out.getChannel();
+        }
+
+        void header(int encoding, int count, float minX, float maxX, float minY, float maxY,
+                    float xQuantum, float yQuantum, int blockSize) throws IOException {
+            ensure(HEADER_SIZE);
+            buffer.putInt(MAGIC)
+                    .putShort((short) VERSION)
+                    .putShort((short) encoding)
+                    .putInt(count)
+                    .putFloat(minX)
+                    .putFloat(maxX)
+                    .putFloat(minY)
+                    .putFloat(maxY)
+                    .putFloat(xQuantum)
+                    .putFloat(yQuantum)
+                    .putInt(blockSize);
+            while (buffer.position() < HEADER_SIZE)
+                buffer.put((byte) 0);
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.rfe.graphcomponent.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sorts parallel x/y arrays by x, moving every y along with its x.
+ * <p>
+ * Input made of ascending runs averaging at least {@link #MIN_RUN_LENGTH} samples, such as
+ * concatenated recordings or a sorted trace with occasional late samples, is merged run by run;
+ * each merge only moves the samples where two runs overlap. Large shuffled input is split into chunks that are sorted and merged on a
+ * worker pool; anything else is quicksorted in place.
+ */
+final class SeriesSorter {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    /**
+     * Average run length from which natural runs are merged instead of sorted from scratch.
+     */
+    static final int MIN_RUN_LENGTH = 64;
+    private static final int PARALLEL_THRESHOLD = 1 << 17;
+
+    private static ExecutorService executor = null;
+
+    private SeriesSorter() {
+    }
+
+    /**
+     * Sorts the first {@code count} samples.
+     *
+     * @param descents the number of positions where x decreases, as counted by the caller
+     */
+    static void sort(float[] xs, float[] ys, int count, int descents) {
+        if (descents == 0)
+            return;
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean parallel = count >= PARALLEL_THRESHOLD && parallelism > 1;
+        if (descents < count / MIN_RUN_LENGTH) {
+            int[] runs = new int[descents + 2];
+            int n = 0;
+            runs[n++] = 0;
+            for (int i = 1; i < count; i++) {
+                if (xs[i] < xs[i - 1])
+                    runs[n++] = i;
+            }
+            runs[n] = count;
+            mergeRuns(xs, ys, runs, n, count, parallel ? getExecutor(parallelism) : null);
+        } else if (parallel) {
+            parallelSort(xs, ys, count, parallelism);
+        } else {
+            quickSort(xs, ys, 0, count - 1);
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor(int parallelism) {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "SeriesSorter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private static void parallelSort(final float[] xs, final float[] ys, int count, int parallelism) {
+        ExecutorService pool = getExecutor(parallelism);
+        int chunks = Integer.highestOneBit(parallelism) * 2;
+        final int[] runs = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++)
+            runs[i] = (int) ((long) count * i / chunks);
+
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            final int lo = runs[i];
+            final int hi = runs[i + 1] - 1;
+            futures.add(submit(pool, abandoned, new Runnable() {
+                @Override
+                public void run() {
+                    quickSort(xs, ys, lo, hi);
+                }
+            }));
+        }
+        if (!await(futures, abandoned))
+            return;
+        mergeRuns(xs, ys, runs, chunks, count, pool);
+    }
+
+    /**
+     * Merges adjacent sorted runs pairwise until one run is left. The runs start at
+     * {@code runs[0..runCount)}, and {@code runs[runCount]} is the end of the last one. The runs
+     * array is overwritten. If the calling thread is interrupted, the arrays are left holding
+     * every sample, partly merged.
+     */
+    private static void mergeRuns(final float[] xs, final float[] ys, int[] runs, int runCount,
+                                  int count, ExecutorService pool) {
+        MergeBuffer buffer = new MergeBuffer();
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+
+        while (runCount > 1) {
+            int merged = 0;
+            for (int i = 0; i < runCount; i += 2) {
+                final int lo = runs[i];
+                final int mid = runs[Math.min(i + 1, runCount)];
+                final int hi = runs[Math.min(i + 2, runCount)];
+                runs[merged++] = lo;
+                if (pool == null || hi - lo < PARALLEL_THRESHOLD) {
+                    merge(xs, ys, lo, mid, hi, buffer);
+                } else {
+                    futures.add(submit(pool, abandoned, new Runnable() {
+                        @Override
+                        public void run() {
+                            merge(xs, ys, lo, mid, hi, new MergeBuffer());
+                        }
+                    }));
+                }
+            }
+            if (!await(futures, abandoned))
+                return;
+            futures.clear();
+            runs[merged] = count;
+            runCount = merged;
+        }
+    }
+
+    /**
+     * Merges the sorted runs {@code [lo, mid)} and {@code [mid, hi)} in place. The head of the
+     * left run below the right run and the tail of the right run above the left run are
+     * already in place and are found by binary search, so only the overlap is moved: runs split
+     * by a few late samples are merged in time proportional to those samples. Equal x keep
+     * their order.
+     */
+    private static void merge(float[] xs, float[] ys, int lo, int mid, int hi,
+                              MergeBuffer buffer) {
+        if (lo == mid || mid == hi || xs[mid - 1] <= xs[mid])
+            return;
+        int start = upperBound(xs, lo, mid, xs[mid]);
+        int end = lowerBound(xs, mid, hi, xs[mid - 1]);
+
+        int leftCount = mid - start;
+        buffer.ensureCapacity(leftCount);
+        float[] bufferX = buffer.xs;
+        float[] bufferY = buffer.ys;
+        System.arraycopy(xs, start, bufferX, 0, leftCount);
+        System.arraycopy(ys, start, bufferY, 0, leftCount);
+
+        // The output never overtakes the right run, so it can be read in place.
+        int i = 0;
+        int j = mid;
+        int k = start;
+        while (i < leftCount && j < end) {
+            if (xs[j] < bufferX[i]) {
+                xs[k] = xs[j];
+                ys[k++] = ys[j++];
+            } else {
+                xs[k] = bufferX[i];
+                ys[k++] = bufferY[i++];
+            }
+        }
+        System.arraycopy(bufferX, i, xs, k, leftCount - i);
+        System.arraycopy(bufferY, i, ys, k, leftCount - i);
+    }
+
+    /**
+     * Returns the first index in {@code [from, to)} whose x is greater than {@code x}.
+     */
+    private static int upperBound(float[] xs, int from, int to, float x) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (xs[mid] <= x)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+
+    /**
+     * Returns the first index in {@code [from, to)} whose x is at least {@code x}.
+     */
+    private static int lowerBound(float[] xs, int from, int to, float x) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (xs[mid] < x)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+
+    /**
+     * Scratch space for the left part of a merge, grown as needed.
+     */
+    private static final class MergeBuffer {
+
+        float[] xs = new float[0];
+        float[] ys = new float[0];
+
+        void ensureCapacity(int capacity) {
+            if (xs.length < capacity) {
+                xs = new float[capacity];
+                ys = new float[capacity];
+            }
+        }
+    }
+
+    /**
+     * Submits a task that is skipped if the sort was abandoned before the task started.
+     */
+    private static Future<?> submit(ExecutorService pool, final AtomicBoolean abandoned,
+                                    final Runnable task) {
+        return pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!abandoned.get())
+                    task.run();
+            }
+        });
+    }
+
+    /**
+     * Waits for all tasks. If the calling thread is interrupted, the sort is abandoned: tasks not
+     * started yet are skipped, but running ones are still waited for, so no task writes into
+     * the arrays after the sort returned. Returns false in that case, with the interrupt flag
+     * restored.
+     */
+    private static boolean await(List<Future<?>> futures, AtomicBoolean abandoned) {
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    abandoned.set(true);
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause();
+                    abandoned.set(true);
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (failure != null)
+            throw new RuntimeException(failure);
+        return !interrupted;
+    }
+
+    private static void quickSort(float[] xs, float[] ys, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            if (xs[mid] < xs[lo])
+                swap(xs, ys, mid, lo);
+            if (xs[hi] < xs[lo])
+                swap(xs, ys, hi, lo);
+            if (xs[hi] < xs[mid])
+                swap(xs, ys, hi, mid);
+            float pivot = xs[mid];
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (xs[i] < pivot)
+                    i++;
+                while (xs[j] > pivot)
+                    j--;
+                if (i <= j) {
+                    swap(xs, ys, i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            if (j - lo < hi - i) {
+                quickSort(xs, ys, lo, j);
+                lo = i;
+            } else {
+                quickSort(xs, ys, i, hi);
+                hi = j;
+            }
+        }
+        insertionSort(xs, ys, lo, hi);
+    }
+
+    private static void insertionSort(float[] xs, float[] ys, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            float x = xs[i];
+            float y = ys[i];
+            int j = i - 1;
+            while (j >= lo && xs[j] > x) {
+                xs[j + 1] = xs[j];
+                ys[j + 1] = ys[j];
+                j--;
+            }
+            xs[j + 1] = x;
+            ys[j + 1] = y;
+        }
+    }
+
+    private static void swap(float[] xs, float[] ys, int i, int j) {
+        float x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        float y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+}
@@ -0,0 +1,286 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Series samples kept in parallel primitive x/y arrays instead of one object per sample.
+ * <p>
+ * A store created with a capacity works as a ring buffer for streamed samples: appending to a
+ * full store evicts the oldest sample, and the lowest and highest y of the live samples are
+ * tracked incrementally.
+ * <p>
+ * {@link #buildIndex()} adds a min/max pyramid that answers {@link #findMinMax} for any range in
+ * O(log n); a ring buffer keeps its pyramid current on every append.
+ */
+public class SeriesStore implements Series {
+
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private int count = 0;
+    private int start = 0;
+    private final boolean ring;
+    private float minY, maxY;
+
+    // Monotonic deques of physical indices; their heads are the current min and max samples.
+    private int[] minDeque, maxDeque;
+    private int minHead, minSize, maxHead, maxSize;
+
+    private MinMaxPyramid index;
+
+    public SeriesStore() {
+        ring = false;
+    }
+
+    /**
+     * Creates an empty ring buffer that holds at most {@code capacity} samples.
+     */
+    public SeriesStore(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        ring = true;
+        xs = new float[capacity];
+        ys = new float[capacity];
+        minDeque = new int[capacity];
+        maxDeque = new int[capacity];
+        index = MinMaxPyramid.over(ys, capacity);
+    }
+
+    /**
+     * Adopts the given arrays without copying them. The store becomes their owner: the first
+     * {@code count} samples may be reordered in place by {@link #sortByX()}.
+     */
+    public void setData(float[] xs, float[] ys, int count) {
+        if (ring)
+            throw new IllegalStateException("a ring buffer store only accepts appended samples");
+        if (xs == null || ys == null)
+            throw new NullPointerException();
+        if (count < 0 || count > xs.length || count > ys.length)
+            throw new IllegalArgumentException("count " + count + " exceeds the data arrays");
+        this.xs = xs;
+        this.ys = ys;
+        this.count = count;
+        index = null;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean isRing() {
+        return ring;
+    }
+
+    public int getCapacity() {
+        return xs.length;
+    }
+
+    @Override
+    public float getX(int i) {
+        return xs[physical(i)];
+    }
+
+    @Override
+    public float getY(int i) {
+        return ys[physical(i)];
+    }
+
+    @Override
+    public int ceilingIndex(float x) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getX(mid) < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    public int floorIndex(float x) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getX(mid) <= x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo - 1;
+    }
+
+    private int physical(int i) {
+        int j = start + i;
+        return j < xs.length ? j : j - xs.length;
+    }
+
+    /**
+     * Appends a sample to a ring buffer store. Samples must arrive in non-decreasing x order.
+     * The oldest sample is evicted when the store is full, and samples older than
+     * {@code newest x - window} are evicted when {@code window} is positive.
+     *
+     * @return the number of evicted samples
+     */
+    public int append(float x, float y, float window) {
+        if (!ring)
+            throw new IllegalStateException("only a ring buffer store accepts appended samples");
+        if (count > 0 && x < getX(count - 1))
+            throw new IllegalArgumentException("samples must be appended in x order");
+
+        int evicted = 0;
+        if (count == xs.length) {
+            evictFirst();
+            evicted++;
+        }
+
+        int j = physical(count);
+        xs[j] = x;
+        ys[j] = y;
+        count++;
+        index.update(j);
+
+        while (minSize > 0 && ys[minDeque[dequeIndex(minHead, minSize - 1)]] >= y)
+            minSize--;
+        minDeque[dequeIndex(minHead, minSize++)] = j;
+        while (maxSize > 0 && ys[maxDeque[dequeIndex(maxHead, maxSize - 1)]] <= y)
+            maxSize--;
+        maxDeque[dequeIndex(maxHead, maxSize++)] = j;
+
+        if (window > 0) {
+            while (count > 1 && getX(0) < x - window) {
+                evictFirst();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private void evictFirst() {
+        if (minDeque[minHead] == start) {
+            minHead = dequeIndex(minHead, 1);
+            minSize--;
+        }
+        if (maxDeque[maxHead] == start) {
+            maxHead = dequeIndex(maxHead, 1);
+            maxSize--;
+        }
+        start = physical(1);
+        count--;
+    }
+
+    private int dequeIndex(int head, int offset) {
+        int j = head + offset;
+        return j < xs.length ? j : j - xs.length;
+    }
+
+    /**
+     * Returns the lowest y of a non-empty store. Arrays passed to {@link #setData} are only
+     * scanned by {@link #sortByX()}.
+     */
+    @Override
+    public float getMinY() {
+        return ring ? ys[minDeque[minHead]] : minY;
+    }
+
+    /**
+     * Returns the highest y of a non-empty store. Arrays passed to {@link #setData} are only
+     * scanned by {@link #sortByX()}.
+     */
+    @Override
+    public float getMaxY() {
+        return ring ? ys[maxDeque[maxHead]] : maxY;
+    }
+
+    /**
+     * Builds the min/max pyramid over the current samples. Must be called after
+     * {@link #sortByX()}, since sorting moves the samples the pyramid points at.
+     */
+    public void buildIndex() {
+        if (!ring) {
+            index = MinMaxPyramid.over(ys, count);
+            index.build();
+        }
+    }
+
+    @Override
+    public boolean hasIndex() {
+        return index != null;
+    }
+
+    /**
+     * Scans the range if {@link #buildIndex()} was not called since the data was set.
+     */
+    @Override
+    public void findMinMax(int from, int to, int[] out) {
+        if (index == null) {
+            int min = from;
+            int max = from;
+            for (int i = from + 1; i < to; i++) {
+                float y = getY(i);
+                if (y < getY(min))
+                    min = i;
+                if (y > getY(max))
+                    max = i;
+            }
+            out[0] = min;
+            out[1] = max;
+            return;
+        }
+
+        int first = physical(from);
+        int last = physical(to - 1);
+        if (first <= last) {
+            index.query(first, last + 1, out);
+        } else {
+            // The range wraps around the end of the ring.
+            index.query(first, xs.length, out);
+            int min = out[0];
+            int max = out[1];
+            index.query(0, last + 1, out);
+            if (ys[min] <= ys[out[0]])
+                out[0] = min;
+            if (ys[max] >= ys[out[1]])
+                out[1] = max;
+        }
+        out[0] = logical(out[0]);
+        out[1] = logical(out[1]);
+    }
+
+    private int logical(int slot) {
+        int i = slot - start;
+        return i >= 0 ? i : i + xs.length;
+    }
+
+    /**
+     * Sorts the samples by x and finds the y range in the same pass that checks whether they
+     * are already sorted, so sorted input is only read once.
+     */
+    public void sortByX() {
+        // Appended samples are already in x order.
+        if (ring || count == 0)
+            return;
+
+        float min = ys[0];
+        float max = ys[0];
+        int descents = 0;
+        for (int i = 1; i < count; i++) {
+            float y = ys[i];
+            if (y < min)
+                min = y;
+            if (y > max)
+                max = y;
+            if (xs[i] < xs[i - 1])
+                descents++;
+        }
+        minY = min;
+        maxY = max;
+        SeriesSorter.sort(xs, ys, count, descents);
+    }
+}
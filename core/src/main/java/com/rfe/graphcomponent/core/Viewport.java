@@ -0,0 +1,81 @@
+package com.rfe.graphcomponent.core;
+
+/**
+ * Maps data coordinates onto a plot area in pixels, with y growing downwards as on screen.
+ */
+public class Viewport {
+
+    private float minX = 0, maxX = 1;
+    private float lowerY = 0, upperY = 1;
+    private float left, top, width, height;
+    private float scaleX = 1, scaleY = 1;
+
+    /**
+     * Sets the data range shown: x from {@code minX} at the left edge to {@code maxX} at the
+     * right edge, y from {@code lowerY} at the bottom to {@code upperY} at the top.
+     */
+    public void setDataRange(float minX, float maxX, float lowerY, float upperY) {
+        this.minX = minX;
+        this.maxX = maxX;
+        this.lowerY = lowerY;
+        this.upperY = upperY;
+        updateScale();
+    }
+
+    public void setPlotArea(float left, float top, float width, float height) {
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        updateScale();
+    }
+
+    private void updateScale() {
+        scaleX = width / (maxX - minX);
+        scaleY = height / (upperY - lowerY);
+    }
+
+    public float toScreenX(float x) {
+        return (x - minX) * scaleX + left;
+    }
+
+    public float toScreenY(float y) {
+        return (upperY - y) * scaleY + top;
+    }
+
+    public float toDataX(float screenX) {
+        return (screenX - left) / scaleX + minX;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getLowerY() {
+        return lowerY;
+    }
+
+    public float getUpperY() {
+        return upperY;
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+}
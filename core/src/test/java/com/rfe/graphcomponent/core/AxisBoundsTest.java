@@ -0,0 +1,64 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AxisBoundsTest {
+
+    private static int tickCount(AxisBounds bounds) {
+        return Math.round((bounds.getUpperBound() - bounds.getLowerBound())
+                / bounds.getTickSize()) + 1;
+    }
+
+    private static void assertBounds(float step, float lower, float upper, AxisBounds bounds) {
+        assertEquals(step, bounds.getTickSize(), step * 1e-5f);
+        assertEquals(lower, bounds.getLowerBound(), step * 1e-5f);
+        assertEquals(upper, bounds.getUpperBound(), step * 1e-5f);
+    }
+
+    @Test
+    public void defaultTicksKeepTheOneDigitSteps() {
+        assertBounds(70, 0, 210, AxisBounds.fromRange(0, 200));
+        assertBounds(40, 0, 120, AxisBounds.fromRange(0, 97));
+        assertBounds(30, 30, 120, AxisBounds.fromRange(40, 118));
+    }
+
+    @Test
+    public void upperBoundOnATickIsNotWidened() {
+        assertBounds(400, 0, 1200, AxisBounds.fromRange(0, 1000));
+        assertBounds(100, 0, 300, AxisBounds.fromRange(0, 300));
+        assertBounds(0.1f, 0, 0.3f, AxisBounds.fromRange(0, 0.3f));
+    }
+
+    @Test
+    public void defaultRangesGetAboutFourTicks() {
+        float[] maxima = {1, 7, 97, 200, 300, 999, 1000, 12345};
+        for (float max : maxima) {
+            int ticks = tickCount(AxisBounds.fromRange(0, max));
+            assertTrue("ticks for [0, " + max + "]", ticks >= 3 && ticks <= 4);
+        }
+    }
+
+    @Test
+    public void tickCountFollowsTheDensity() {
+        // Steps of one significant digit get coarse when it is 1: 1000 / 7 rounds up to 200.
+        int[] expected = {3, 4, 5, 6, 6, 6, 6, 6};
+        for (int density = 3; density <= 10; density++) {
+            int ticks = tickCount(AxisBounds.fromRange(0, 1000, density));
+            assertEquals("ticks for density " + density, expected[density - 3], ticks);
+        }
+    }
+
+    @Test
+    public void singleValueIsWidenedByOneStep() {
+        AxisBounds bounds = AxisBounds.fromRange(4, 4);
+        assertEquals(2, tickCount(bounds));
+        assertEquals(4, bounds.getLowerBound(), 1e-5f);
+
+        bounds = AxisBounds.fromRange(0, 0);
+        assertEquals(2, tickCount(bounds));
+        assertEquals(0, bounds.getLowerBound(), 0);
+    }
+}
@@ -0,0 +1,105 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AxisScaleTest {
+
+    private static final class CountingStyle implements AxisScale.LabelStyle {
+
+        int formatted = 0;
+
+        @Override
+        public String format(float value, int fractionDigits) {
+            formatted++;
+            return String.format("%." + fractionDigits + "f", value);
+        }
+
+        @Override
+        public float measure(String label) {
+            return label.length();
+        }
+    }
+
+    @Test
+    public void valueAxisSnapsToNiceTicks() {
+        AxisScale axis = new AxisScale(true);
+        assertTrue(axis.update(0, 97));
+        assertEquals(40, axis.getStep(), 0);
+        assertEquals(0, axis.getLowerBound(), 0);
+        assertEquals(120, axis.getUpperBound(), 0);
+        assertEquals(4, axis.getTickCount());
+        assertEquals(120, axis.getTickValue(3), 0);
+    }
+
+    @Test
+    public void valueAxisKeepsBoundsWithinHysteresis() {
+        AxisScale axis = new AxisScale(true);
+        axis.update(0, 97);
+        assertFalse(axis.update(5, 90));
+        assertEquals(120, axis.getUpperBound(), 0);
+        assertTrue(axis.update(5, 40));
+        assertTrue(axis.getUpperBound() < 100);
+        axis.reset();
+        assertTrue(axis.update(5, 40));
+    }
+
+    @Test
+    public void rangeAxisSpansTheRangeAndKeepsItsStep() {
+        AxisScale axis = new AxisScale(false);
+        axis.update(3, 97);
+        assertEquals(3, axis.getLowerBound(), 0);
+        assertEquals(97, axis.getUpperBound(), 0);
+        float step = axis.getStep();
+        axis.update(13, 107);
+        assertEquals(step, axis.getStep(), 0);
+        for (int i = 0; i < axis.getTickCount(); i++) {
+            float tick = axis.getTickValue(i);
+            assertTrue(tick >= 13 && tick <= 107);
+        }
+    }
+
+    @Test
+    public void emptyRangeStillHasTicks() {
+        AxisScale axis = new AxisScale(true);
+        axis.update(5, 5);
+        assertTrue(axis.getTickCount() >= 2);
+        assertTrue(axis.getLowerBound() <= 5 && axis.getUpperBound() > 5);
+    }
+
+    @Test
+    public void labelsAreCachedByTick() {
+        CountingStyle style = new CountingStyle();
+        AxisScale axis = new AxisScale(false);
+        axis.setLabelStyle(style);
+        axis.update(0, 10);
+        for (int i = 0; i < axis.getTickCount(); i++)
+            assertEquals(axis.getLabel(i).length(), axis.getLabelWidth(i), 0);
+        int formatted = style.formatted;
+
+        // Panning by whole steps only formats the ticks new on the axis.
+        axis.update(axis.getStep(), 10 + axis.getStep());
+        for (int i = 0; i < axis.getTickCount(); i++)
+            axis.getLabel(i);
+        assertEquals(formatted + 1, style.formatted);
+    }
+
+    @Test
+    public void fractionDigitsFollowTheStep() {
+        AxisScale axis = new AxisScale(true);
+        axis.setLabelStyle(new CountingStyle());
+        axis.update(0, 0.3f);
+        assertTrue(axis.getStep() >= 0.1f && axis.getStep() < 1);
+        assertEquals(String.format("%.1f", axis.getTickValue(1)), axis.getLabel(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void labelsNeedAStyle() {
+        AxisScale axis = new AxisScale(true);
+        axis.update(0, 1);
+        axis.getLabel(0);
+    }
+}
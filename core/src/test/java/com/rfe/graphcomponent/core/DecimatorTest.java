@@ -0,0 +1,138 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DecimatorTest {
+
+    private static SeriesStore randomSeries(int count, boolean indexed, long seed) {
+        Random random = new Random(seed);
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i;
+            ys[i] = random.nextFloat() * 100;
+        }
+        SeriesStore store = new SeriesStore();
+        store.setData(xs, ys, count);
+        store.sortByX();
+        if (indexed)
+            store.buildIndex();
+        return store;
+    }
+
+    private static Decimator decimate(Series series, Decimator.Mode mode, int from, int to,
+                                      int width) {
+        Decimator decimator = new Decimator();
+        decimator.setMode(mode);
+        decimator.update(series, from, to, width);
+        return decimator;
+    }
+
+    /**
+     * Checks that the result is strictly increasing and keeps both ends of the slice.
+     */
+    private static void checkIndices(Decimator decimator, int from, int to) {
+        assertEquals(from, decimator.getIndex(0));
+        assertEquals(to - 1, decimator.getIndex(decimator.size() - 1));
+        for (int i = 1; i < decimator.size(); i++)
+            assertTrue(decimator.getIndex(i) > decimator.getIndex(i - 1));
+    }
+
+    @Test
+    public void emptyAndSingleSample() {
+        for (Decimator.Mode mode : Decimator.Mode.values()) {
+            assertEquals(0, decimate(randomSeries(0, false, 1), mode, 0, 0, 100).size());
+            Decimator one = decimate(randomSeries(1, true, 1), mode, 0, 1, 100);
+            assertEquals(1, one.size());
+            assertEquals(0, one.getIndex(0));
+        }
+    }
+
+    @Test
+    public void fewSamplesPassThrough() {
+        Decimator decimator = decimate(randomSeries(50, false, 2), Decimator.Mode.LTTB, 10, 40,
+                100);
+        assertTrue(decimator.isPassThrough());
+        assertEquals(30, decimator.size());
+        assertEquals(10, decimator.getIndex(0));
+    }
+
+    @Test
+    public void lttbKeepsOneSamplePerPixel() {
+        for (boolean indexed : new boolean[]{false, true}) {
+            SeriesStore series = randomSeries(100000, indexed, 3);
+            Decimator decimator = decimate(series, Decimator.Mode.LTTB, 0, series.size(), 500);
+            assertFalse(decimator.isPassThrough());
+            assertEquals(500, decimator.size());
+            checkIndices(decimator, 0, series.size());
+
+            decimator.update(series, 1000, 60000, 300);
+            assertEquals(300, decimator.size());
+            checkIndices(decimator, 1000, 60000);
+        }
+    }
+
+    @Test
+    public void indexedLttbKeepsPeaks() {
+        SeriesStore series = randomSeries(100000, true, 4);
+        Decimator decimator = decimate(series, Decimator.Mode.LTTB, 0, series.size(), 500);
+        int[] extremes = new int[2];
+        series.findMinMax(1, series.size() - 1, extremes);
+        boolean min = false;
+        boolean max = false;
+        for (int i = 0; i < decimator.size(); i++) {
+            min |= decimator.getIndex(i) == extremes[0];
+            max |= decimator.getIndex(i) == extremes[1];
+        }
+        assertTrue(min || max);
+    }
+
+    @Test
+    public void minMaxKeepsTheExtremesOfEveryColumn() {
+        for (boolean indexed : new boolean[]{false, true}) {
+            SeriesStore series = randomSeries(100000, indexed, 5);
+            Decimator decimator = decimate(series, Decimator.Mode.MIN_MAX, 0, series.size(),
+                    400);
+            checkIndices(decimator, 0, series.size());
+            assertTrue(decimator.size() <= 2 * 400 + 2);
+
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = 0; i < decimator.size(); i++) {
+                min = Math.min(min, series.getY(decimator.getIndex(i)));
+                max = Math.max(max, series.getY(decimator.getIndex(i)));
+            }
+            assertEquals(series.getMinY(), min, 0);
+            assertEquals(series.getMaxY(), max, 0);
+        }
+    }
+
+    @Test
+    public void resultIsCachedUntilInputsChange() {
+        SeriesStore series = randomSeries(10000, true, 6);
+        Decimator decimator = decimate(series, Decimator.Mode.LTTB, 0, series.size(), 200);
+        assertFalse(decimator.update(series, 200));
+        assertTrue(decimator.update(series, 300));
+        decimator.invalidate();
+        assertTrue(decimator.update(series, 300));
+        decimator.setMode(Decimator.Mode.MIN_MAX);
+        assertTrue(decimator.update(series, 300));
+    }
+
+    @Test
+    public void copyKeepsTheResult() {
+        SeriesStore series = randomSeries(10000, true, 7);
+        Decimator decimator = decimate(series, Decimator.Mode.MIN_MAX, 0, series.size(), 200);
+        Decimator copy = new Decimator(decimator);
+        assertEquals(decimator.size(), copy.size());
+        for (int i = 0; i < copy.size(); i++)
+            assertEquals(decimator.getIndex(i), copy.getIndex(i));
+        assertFalse(copy.update(series, 200));
+    }
+}
@@ -0,0 +1,109 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MinMaxPyramidTest {
+
+    private static void checkQuery(Series series, int from, int to) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, series.getY(i));
+            max = Math.max(max, series.getY(i));
+        }
+        int[] out = new int[2];
+        series.findMinMax(from, to, out);
+        assertEquals("min of [" + from + ", " + to + ")", min, series.getY(out[0]), 0);
+        assertEquals("max of [" + from + ", " + to + ")", max, series.getY(out[1]), 0);
+    }
+
+    private static SeriesStore indexed(float[] ys) {
+        float[] xs = new float[ys.length];
+        for (int i = 0; i < xs.length; i++)
+            xs[i] = i;
+        SeriesStore store = new SeriesStore();
+        store.setData(xs, ys, ys.length);
+        store.sortByX();
+        store.buildIndex();
+        return store;
+    }
+
+    @Test
+    public void singleSample() {
+        SeriesStore store = indexed(new float[]{7});
+        int[] out = new int[2];
+        store.findMinMax(0, 1, out);
+        assertEquals(0, out[0]);
+        assertEquals(0, out[1]);
+    }
+
+    @Test
+    public void rangesAroundBucketBounds() {
+        Random random = new Random(1);
+        float[] ys = new float[5 * MinMaxPyramid.BUCKET_SIZE + 3];
+        for (int i = 0; i < ys.length; i++)
+            ys[i] = random.nextFloat();
+        SeriesStore store = indexed(ys);
+        for (int from = 0; from < ys.length; from++) {
+            for (int to = from + 1; to <= ys.length; to++)
+                checkQuery(store, from, to);
+        }
+    }
+
+    @Test
+    public void randomRanges() {
+        Random random = new Random(2);
+        float[] ys = new float[100000];
+        for (int i = 0; i < ys.length; i++)
+            ys[i] = random.nextInt(1000);
+        SeriesStore store = indexed(ys);
+        for (int query = 0; query < 1000; query++) {
+            int from = random.nextInt(ys.length);
+            checkQuery(store, from, from + 1 + random.nextInt(ys.length - from));
+        }
+    }
+
+    @Test
+    public void ringKeepsIndexCurrentAcrossWrapAround() {
+        Random random = new Random(3);
+        SeriesStore ring = new SeriesStore(100);
+        for (int i = 0; i < 1000; i++) {
+            ring.append(i, random.nextFloat(), 0);
+            if (i % 37 == 0) {
+                for (int query = 0; query < 20; query++) {
+                    int from = random.nextInt(ring.size());
+                    checkQuery(ring, from, from + 1 + random.nextInt(ring.size() - from));
+                }
+            }
+        }
+        checkQuery(ring, 0, ring.size());
+    }
+
+    @Test
+    public void mappedSeriesIndex() throws Exception {
+        Random random = new Random(4);
+        int count = 3000;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i;
+            ys[i] = random.nextFloat();
+        }
+        java.io.File file = java.io.File.createTempFile("pyramid", ".gcsf");
+        try {
+            SeriesFile.write(file, xs, ys, count);
+            MappedSeries series = SeriesFile.open(file);
+            series.buildIndex();
+            for (int query = 0; query < 200; query++) {
+                int from = random.nextInt(count);
+                checkQuery(series, from, from + 1 + random.nextInt(count - from));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
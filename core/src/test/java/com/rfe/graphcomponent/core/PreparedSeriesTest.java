@@ -0,0 +1,43 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PreparedSeriesTest {
+
+    @Test
+    public void emptySeriesGivesEmptySnapshot() {
+        SeriesStore store = new SeriesStore();
+        store.setData(new float[0], new float[0], 0);
+        PreparedSeries prepared = PreparedSeries.prepare(store, Decimator.Mode.LTTB, 100);
+        assertNotNull(prepared);
+        assertTrue(prepared.getSeries().isEmpty());
+        assertEquals(0, prepared.getDecimator().size());
+        assertTrue(Float.isNaN(prepared.getMinX()));
+        assertTrue(Float.isNaN(prepared.getMaxY()));
+    }
+
+    @Test
+    public void newStoreWithoutDataGivesEmptySnapshot() {
+        PreparedSeries prepared = PreparedSeries.prepare(new SeriesStore(), Decimator.Mode.NONE,
+                100);
+        assertNotNull(prepared);
+        assertEquals(0, prepared.getDecimator().size());
+    }
+
+    @Test
+    public void oneSampleIsItsOwnCorners() {
+        SeriesStore store = new SeriesStore();
+        store.setData(new float[]{2}, new float[]{5}, 1);
+        PreparedSeries prepared = PreparedSeries.prepare(store, Decimator.Mode.LTTB, 100);
+        assertEquals(2, prepared.getMinX(), 0);
+        assertEquals(2, prepared.getMaxX(), 0);
+        assertEquals(5, prepared.getMinY(), 0);
+        assertEquals(5, prepared.getMaxY(), 0);
+        assertEquals(1, prepared.getDecimator().size());
+        assertTrue(prepared.getBounds().getUpperBound() > 5);
+    }
+}
@@ -0,0 +1,139 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SeriesFileTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("series", ".gcsf");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void floatRoundTrip() throws IOException {
+        Random random = new Random(1);
+        int count = 1000;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i * 0.5f;
+            ys[i] = random.nextFloat() * 100;
+        }
+        SeriesFile.write(file, xs, ys, count);
+        MappedSeries series = SeriesFile.open(file);
+        assertEquals(count, series.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(xs[i], series.getX(i), 0);
+            assertEquals(ys[i], series.getY(i), 0);
+        }
+        assertEquals(0, series.getMinX(), 0);
+        assertEquals(xs[count - 1], series.getMaxX(), 0);
+        assertEquals(299.5f, series.getX(series.floorIndex(299.7f)), 0);
+    }
+
+    @Test
+    public void emptyAndSingleSample() throws IOException {
+        SeriesFile.write(file, new float[0], new float[0], 0);
+        assertTrue(SeriesFile.open(file).isEmpty());
+
+        SeriesFile.writeDelta(file, new float[]{4}, new float[]{2}, 1, 0.1f, 0.1f);
+        MappedSeries series = SeriesFile.open(file);
+        assertEquals(1, series.size());
+        assertEquals(4, series.getX(0), 0.1f);
+        assertEquals(2, series.getY(0), 0.05f);
+    }
+
+    @Test
+    public void deltaRoundTripStaysWithinTheQuanta() throws IOException {
+        Random random = new Random(2);
+        int count = 5 * SeriesFile.DELTA_BLOCK_SIZE + 17;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        float x = 0;
+        for (int i = 0; i < count; i++) {
+            x += random.nextFloat();
+            xs[i] = x;
+            ys[i] = random.nextFloat() * 500;
+        }
+        float xQuantum = 0.01f;
+        float yQuantum = 0.05f;
+        SeriesFile.writeDelta(file, xs, ys, count, xQuantum, yQuantum);
+        MappedSeries series = SeriesFile.open(file);
+        assertEquals(count, series.size());
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            // x is rounded down, y to the nearest quantum; allow for float rounding of the base.
+            assertTrue(series.getX(i) <= xs[i] + 1e-3f);
+            assertEquals(xs[i], series.getX(i), xQuantum + 1e-3f);
+            assertEquals(ys[i], series.getY(i), yQuantum / 2 + 1e-3f);
+            if (i > 0)
+                assertTrue(series.getX(i) >= series.getX(i - 1));
+            minY = Math.min(minY, series.getY(i));
+            maxY = Math.max(maxY, series.getY(i));
+        }
+        assertEquals(minY, series.getMinY(), 0);
+        assertEquals(maxY, series.getMaxY(), 0);
+    }
+
+    @Test
+    public void deltaKeepsZeroNonNegative() throws IOException {
+        float[] xs = {0, 1, 2};
+        float[] ys = {0, 0.3f, 0.6f};
+        SeriesFile.writeDelta(file, xs, ys, 3, 1, 0.25f);
+        MappedSeries series = SeriesFile.open(file);
+        for (int i = 0; i < 3; i++)
+            assertTrue(series.getY(i) >= 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deltaRejectsOffsetsBeyond16Bits() throws IOException {
+        SeriesFile.writeDelta(file, new float[]{0, 1000}, new float[]{0, 0}, 2, 0.001f, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedSamples() throws IOException {
+        SeriesFile.write(file, new float[]{1, 0}, new float[]{0, 0}, 2);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFiles() throws IOException {
+        SeriesFile.write(file, new float[]{0, 1, 2}, new float[]{0, 1, 2}, 3);
+        long length = file.length();
+        java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length - 4);
+        } finally {
+            raf.close();
+        }
+        SeriesFile.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[SeriesFile.HEADER_SIZE]);
+        } finally {
+            out.close();
+        }
+        SeriesFile.open(file);
+    }
+}
@@ -0,0 +1,153 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SeriesSorterTest {
+
+    /**
+     * Sorts a copy and checks that x is sorted and every y moved along with its x. Each y is
+     * the original index of its sample.
+     */
+    private static void checkSort(float[] xs) {
+        int count = xs.length;
+        float[] sortedXs = xs.clone();
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++)
+            ys[i] = i;
+        SeriesSorter.sort(sortedXs, ys, count, descents(xs));
+
+        float[] expected = xs.clone();
+        Arrays.sort(expected);
+        assertArrayEquals(expected, sortedXs, 0);
+        for (int i = 0; i < count; i++)
+            assertEquals(xs[(int) ys[i]], sortedXs[i], 0);
+    }
+
+    private static int descents(float[] xs) {
+        int descents = 0;
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] < xs[i - 1])
+                descents++;
+        }
+        return descents;
+    }
+
+    private static float[] nearlySorted(int count, Random random) {
+        float[] xs = new float[count];
+        for (int i = 0; i < count; i++)
+            xs[i] = i;
+        for (int swaps = 0; swaps < count / 1000 + 1; swaps++) {
+            int i = random.nextInt(count - 1);
+            float x = xs[i];
+            xs[i] = xs[i + 1];
+            xs[i + 1] = x;
+        }
+        return xs;
+    }
+
+    @Test
+    public void emptyAndSingleSample() {
+        checkSort(new float[0]);
+        checkSort(new float[]{3});
+    }
+
+    @Test
+    public void sortedInputIsUntouched() {
+        float[] xs = {1, 2, 2, 5};
+        float[] ys = {4, 3, 2, 1};
+        SeriesSorter.sort(xs, ys, 4, 0);
+        assertArrayEquals(new float[]{1, 2, 2, 5}, xs, 0);
+        assertArrayEquals(new float[]{4, 3, 2, 1}, ys, 0);
+    }
+
+    @Test
+    public void reversed() {
+        float[] xs = new float[1000];
+        for (int i = 0; i < xs.length; i++)
+            xs[i] = xs.length - i;
+        checkSort(xs);
+    }
+
+    @Test
+    public void nearlySortedIsMerged() {
+        Random random = new Random(1);
+        for (int count : new int[]{100, 1000, 100000})
+            checkSort(nearlySorted(count, random));
+    }
+
+    @Test
+    public void concatenatedRunsWithDuplicates() {
+        Random random = new Random(2);
+        float[] xs = new float[50000];
+        for (int run = 0; run < 5; run++) {
+            for (int i = 0; i < 10000; i++)
+                xs[run * 10000 + i] = random.nextInt(5000);
+            Arrays.sort(xs, run * 10000, (run + 1) * 10000);
+        }
+        checkSort(xs);
+    }
+
+    @Test
+    public void mergeKeepsTheOrderOfEqualX() {
+        // Two runs of 64 samples: [0, 64) and [0, 64) again, so every x appears twice.
+        float[] xs = new float[128];
+        float[] ys = new float[128];
+        for (int i = 0; i < 128; i++) {
+            xs[i] = i % 64;
+            ys[i] = i;
+        }
+        SeriesSorter.sort(xs, ys, 128, 1);
+        for (int i = 0; i < 128; i += 2) {
+            assertEquals(i / 2, xs[i], 0);
+            assertEquals(xs[i], xs[i + 1], 0);
+            assertTrue(ys[i] < ys[i + 1]);
+        }
+    }
+
+    @Test
+    public void shuffled() {
+        Random random = new Random(3);
+        for (int count : new int[]{17, 1000, 1 << 18}) {
+            float[] xs = new float[count];
+            for (int i = 0; i < count; i++)
+                xs[i] = random.nextFloat() * count;
+            checkSort(xs);
+        }
+    }
+
+    @Test
+    public void interruptedSortKeepsEverySample() {
+        Random random = new Random(4);
+        int count = 1 << 18;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = random.nextFloat();
+            ys[i] = xs[i] * 2;
+        }
+        float[] expected = xs.clone();
+        Arrays.sort(expected);
+
+        Thread.currentThread().interrupt();
+        try {
+            SeriesSorter.sort(xs, ys, count, descents(xs));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        // The sort may have been abandoned, but no sample is lost or torn from its y.
+        for (int i = 0; i < count; i++)
+            assertEquals(xs[i] * 2, ys[i], 0);
+        float[] actual = xs.clone();
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual, 0);
+    }
+}
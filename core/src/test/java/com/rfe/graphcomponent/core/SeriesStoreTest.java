@@ -0,0 +1,100 @@
+package com.rfe.graphcomponent.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SeriesStoreTest {
+
+    @Test
+    public void emptyStore() {
+        SeriesStore store = new SeriesStore();
+        store.setData(new float[0], new float[0], 0);
+        store.sortByX();
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.ceilingIndex(1));
+        assertEquals(-1, store.floorIndex(1));
+    }
+
+    @Test
+    public void cornersAndSearchOfSortedData() {
+        SeriesStore store = new SeriesStore();
+        store.setData(new float[]{3, 1, 2, 2}, new float[]{30, 10, 20, 25}, 4);
+        store.sortByX();
+        assertEquals(1, store.getX(0), 0);
+        assertEquals(3, store.getX(3), 0);
+        assertEquals(10, store.getMinY(), 0);
+        assertEquals(30, store.getMaxY(), 0);
+        assertEquals(1, store.ceilingIndex(2));
+        assertEquals(2, store.floorIndex(2));
+        assertEquals(4, store.ceilingIndex(4));
+        assertEquals(-1, store.floorIndex(0));
+    }
+
+    @Test
+    public void ringEvictsOldestWhenFull() {
+        SeriesStore ring = new SeriesStore(3);
+        assertEquals(0, ring.append(0, 5, 0));
+        ring.append(1, 6, 0);
+        ring.append(2, 7, 0);
+        assertEquals(1, ring.append(3, 8, 0));
+        assertEquals(3, ring.size());
+        assertEquals(1, ring.getX(0), 0);
+        assertEquals(3, ring.getX(2), 0);
+    }
+
+    @Test
+    public void ringEvictsSamplesOutsideTheWindow() {
+        SeriesStore ring = new SeriesStore(100);
+        for (int i = 0; i < 10; i++)
+            ring.append(i, i, 0);
+        assertEquals(6, ring.append(11, 0, 5));
+        assertEquals(5, ring.size());
+        assertEquals(6, ring.getX(0), 0);
+        assertEquals(5, ring.append(30, 0, 5));
+        assertEquals(1, ring.size());
+    }
+
+    @Test
+    public void ringDequesTrackMinMaxAcrossWrapAround() {
+        Random random = new Random(1);
+        int capacity = 50;
+        SeriesStore ring = new SeriesStore(capacity);
+        for (int i = 0; i < 2000; i++) {
+            ring.append(i, random.nextInt(100), i % 3 == 0 ? 30 : 0);
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int j = 0; j < ring.size(); j++) {
+                min = Math.min(min, ring.getY(j));
+                max = Math.max(max, ring.getY(j));
+            }
+            assertEquals(min, ring.getMinY(), 0);
+            assertEquals(max, ring.getMaxY(), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringRejectsSamplesOutOfOrder() {
+        SeriesStore ring = new SeriesStore(4);
+        ring.append(2, 0, 0);
+        ring.append(1, 0, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void heapStoreRejectsAppends() {
+        new SeriesStore().append(0, 0, 0);
+    }
+
+    @Test
+    public void heapStoreHasNoIndexUntilBuilt() {
+        SeriesStore store = new SeriesStore();
+        store.setData(new float[]{0, 1}, new float[]{1, 0}, 2);
+        assertFalse(store.hasIndex());
+        store.buildIndex();
+        assertTrue(store.hasIndex());
+    }
+}
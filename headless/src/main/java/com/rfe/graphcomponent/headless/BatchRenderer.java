@@ -0,0 +1,81 @@
+package com.rfe.graphcomponent.headless;
+
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.Series;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders many charts in parallel on a fixed pool of worker threads. Each worker keeps its own
+ * {@link ChartRenderer}, so buffers, images and label caches are reused from chart to chart
+ * without any locking. Series are only read and may be shared between charts rendered at the
+ * same time, as long as no samples are set or appended while they render.
+ */
+public final class BatchRenderer implements Closeable {
+
+    private final ExecutorService executor;
+    private final ThreadLocal<ChartRenderer> renderers;
+
+    /**
+     * Creates a renderer with one worker per available processor.
+     */
+    public BatchRenderer(ChartStyle style, Decimator.Mode mode) {
+        this(style, mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param style shared by all workers and must not be modified while they render
+     */
+    public BatchRenderer(final ChartStyle style, final Decimator.Mode mode, int threads) {
+        executor = Executors.newFixedThreadPool(threads);
+        renderers = new ThreadLocal<ChartRenderer>() {
+            @Override
+            protected ChartRenderer initialValue() {
+                ChartRenderer renderer = new ChartRenderer(style);
+                renderer.setDecimationMode(mode);
+                return renderer;
+            }
+        };
+    }
+
+    /**
+     * Renders a chart to PNG; see {@link ChartRenderer#render} for the parameters.
+     */
+    public Future<byte[]> renderPng(final Series series, final int width, final int height,
+                                    final float selectedX) {
+        return executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                renderers.get().writePng(series, width, height, selectedX, out);
+                return out.toByteArray();
+            }
+        });
+    }
+
+    public Future<String> renderSvg(final Series series, final int width, final int height,
+                                    final float selectedX) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                StringWriter out = new StringWriter();
+                renderers.get().writeSvg(series, width, height, selectedX, out);
+                return out.toString();
+            }
+        });
+    }
+
+    /**
+     * Finishes the charts already submitted and stops the workers.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,263 @@
+package com.rfe.graphcomponent.headless;
+
+import com.rfe.graphcomponent.core.AxisScale;
+import com.rfe.graphcomponent.core.ChartLayout;
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.FlagLayout;
+import com.rfe.graphcomponent.core.GridLayout;
+import com.rfe.graphcomponent.core.NearestPoint;
+import com.rfe.graphcomponent.core.Series;
+import com.rfe.graphcomponent.core.Viewport;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders charts without an Android runtime, to a Java2D image or PNG, or streamed as SVG. It
+ * places the plot, grid, labels and flag with the same core layout as the view and draws
+ * them alike, so an offscreen chart looks like a screenshot of the view below its seek bar.
+ * <p>
+ * A renderer keeps its viewport, axes, decimation, vertex buffer and image between charts and
+ * is not thread-safe; use one per thread, as {@link BatchRenderer} does. Runs with
+ * {@code -Djava.awt.headless=true} on machines without a display.
+ */
+public final class ChartRenderer {
+
+    static {
+        // Encoding to a stream otherwise buffers every image in a temporary file.
+        ImageIO.setUseCache(false);
+    }
+
+    private static final float SHADOW_OFFSET = 5;
+    private static final int SHADOW_COLOR = 0x60000000;
+    private static final int FLAG_TEXT_COLOR = 0xff000000;
+
+    private final ChartStyle style;
+    private final Font font;
+    private final FontRenderContext fontContext = new FontRenderContext(null, true, true);
+    private final float lineHeight;
+
+    private final Viewport viewport = new Viewport();
+    private final AxisScale yAxis = new AxisScale(true);
+    private final AxisScale xAxis = new AxisScale(false);
+    private final Decimator decimator = new Decimator();
+    private final GridLayout grid = new GridLayout();
+    private final FlagLayout flag = new FlagLayout();
+    private final int[] minMax = new int[2];
+    private float[] vertices = new float[0];
+    private final float[] outline = new float[FlagLayout.OUTLINE_SIZE];
+    private final StringBuilder svgBuffer = new StringBuilder();
+    private BufferedImage image = null;
+
+    private Series series;
+    private int count, selected;
+    private String flagText;
+
+    public ChartRenderer(ChartStyle style) {
+        this.style = style;
+        font = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(textSize());
+        LineMetrics metrics = font.getLineMetrics("0", fontContext);
+        lineHeight = metrics.getAscent() + metrics.getDescent();
+
+        yAxis.setLabelStyle(new AxisScale.LabelStyle() {
+            @Override
+            public String format(float value, int fractionDigits) {
+                return AxisScale.formatValue(value, fractionDigits,
+                        ChartRenderer.this.style.getUnit());
+            }
+
+            @Override
+            public float measure(String label) {
+                return measureText(label);
+            }
+        });
+        xAxis.setLabelStyle(new AxisScale.LabelStyle() {
+            @Override
+            public String format(float value, int fractionDigits) {
+                return AxisScale.formatValue(value, fractionDigits,
+                        ChartRenderer.this.style.getXUnit());
+            }
+
+            @Override
+            public float measure(String label) {
+                return measureText(label);
+            }
+        });
+    }
+
+    private float textSize() {
+        return style.toPixels(style.getTextSize());
+    }
+
+    private float measureText(String text) {
+        return (float) font.getStringBounds(text, fontContext).getWidth();
+    }
+
+    public void setDecimationMode(Decimator.Mode mode) {
+        decimator.setMode(mode);
+    }
+
+    /**
+     * Renders a chart into an image owned by this renderer, which is reused by the next call
+     * of the same size; copy or encode it before rendering the next chart.
+     *
+     * @param series    the samples, sorted by x
+     * @param selectedX the x value to put the flag at, or NaN for no flag
+     */
+    public BufferedImage render(Series series, int width, int height, float selectedX) {
+        // Opaque charts leave out the alpha channel, which makes encoding them cheaper.
+        int type = (style.getBackgroundColor() >>> 24) == 0xff
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        if (image == null || image.getWidth() != width || image.getHeight() != height
+                || image.getType() != type)
+            image = new BufferedImage(width, height, type);
+        layout(series, width, height, selectedX);
+        ImageSurface surface = new ImageSurface(image, font);
+        try {
+            draw(surface, width, height);
+        } finally {
+            surface.dispose();
+        }
+        return image;
+    }
+
+    public void writePng(Series series, int width, int height, float selectedX,
+                         OutputStream out) throws IOException {
+        ImageIO.write(render(series, width, height, selectedX), "png", out);
+    }
+
+    /**
+     * Streams a chart as an SVG document, element by element, without an image in between.
+     */
+    public void writeSvg(Series series, int width, int height, float selectedX,
+                         Writer out) throws IOException {
+        layout(series, width, height, selectedX);
+        SvgSurface surface = new SvgSurface(svgBuffer, out, width, height, textSize());
+        surface.begin();
+        draw(surface, width, height);
+        surface.end();
+    }
+
+    /**
+     * Lays out the chart like the view does for a series shown as a whole: fits both axes,
+     * decimates to one sample per pixel and transforms the decimated samples to the screen.
+     */
+    private void layout(Series series, int width, int height, float selectedX) {
+        this.series = series;
+        int barHeight = style.getSeekBarHeight();
+        ChartLayout.placePlotArea(viewport, width, height, 0, 0, 0, barHeight, textSize());
+
+        // Every chart is fit afresh; hysteresis only helps a chart that changes in place.
+        yAxis.reset();
+        xAxis.reset();
+        count = 0;
+        selected = -1;
+        if (series.isEmpty()) {
+            yAxis.update(0, 0);
+            viewport.setDataRange(0, 1, yAxis.getLowerBound(), yAxis.getUpperBound());
+            grid.layout(viewport, yAxis, null);
+            return;
+        }
+
+        float minX = series.getX(0);
+        float maxX = series.getX(series.size() - 1);
+        series.findMinMax(0, series.size(), minMax);
+        yAxis.update(series.getY(minMax[0]), series.getY(minMax[1]));
+        viewport.setDataRange(minX, maxX, yAxis.getLowerBound(), yAxis.getUpperBound());
+        if (style.isXAxisVisible())
+            xAxis.update(minX, maxX);
+        grid.layout(viewport, yAxis, style.isXAxisVisible() ? xAxis : null);
+
+        // The series may be one rendered before with other samples.
+        decimator.invalidate();
+        decimator.update(series, ChartLayout.getDecimationWidth(width, barHeight));
+        count = decimator.size();
+        if (vertices.length < 2 * count)
+            vertices = new float[2 * count];
+        for (int i = 0; i < count; i++) {
+            int index = decimator.getIndex(i);
+            vertices[2 * i] = viewport.toScreenX(series.getX(index));
+            vertices[2 * i + 1] = viewport.toScreenY(series.getY(index));
+        }
+
+        if (!Float.isNaN(selectedX)) {
+            selected = NearestPoint.find(series, decimator, 0, count, selectedX);
+            if (selected >= 0) {
+                flagText = AxisScale.formatValue(series.getY(decimator.getIndex(selected)), 0,
+                        style.getUnit());
+                flag.layout(vertices[2 * selected], vertices[2 * selected + 1],
+                        measureText(flagText), lineHeight, width);
+            }
+        }
+    }
+
+    // The layout of the last chart, which tests compare with the view's.
+
+    Viewport getViewport() {
+        return viewport;
+    }
+
+    GridLayout getGrid() {
+        return grid;
+    }
+
+    Decimator getDecimator() {
+        return decimator;
+    }
+
+    private void draw(Surface surface, int width, int height) {
+        surface.fill(style.getBackgroundColor());
+
+        float markerRadius = style.toPixels(style.getMarkerRadius());
+        float left = viewport.getLeft();
+        surface.clip(left - markerRadius, 0, left + viewport.getWidth() + markerRadius, height);
+        if ((style.getAreaColor() >>> 24) != 0) {
+            surface.fillArea(vertices, count, viewport.toScreenY(yAxis.getLowerBound()),
+                    style.getAreaColor());
+        }
+        surface.drawPolyline(vertices, count, style.getStrokeColor(),
+                style.toPixels(style.getStrokeWidth()));
+        if (style.isMarkersVisible() && ChartLayout.showsMarkers(count, viewport.getWidth(),
+                style.getMaxMarkerDensity()))
+            surface.drawMarkers(vertices, count, markerRadius, style.getStrokeColor());
+        surface.unclip();
+
+        surface.drawLines(grid.getLines(), grid.getLineCount(), style.getGridColor(),
+                style.toPixels(1));
+        for (int i = 0; i < grid.getYLabelCount(); i++) {
+            surface.drawText(yAxis.getLabel(i), grid.getYLabelX(), grid.getYLabelY(i),
+                    style.getTextColor());
+        }
+        for (int i = 0; i < grid.getXLabelCount(); i++) {
+            surface.drawText(xAxis.getLabel(grid.getXLabelTick(i)), grid.getXLabelX(i),
+                    grid.getXLabelY(), style.getTextColor());
+        }
+
+        if (selected >= 0)
+            drawFlag(surface);
+    }
+
+    private void drawFlag(Surface surface) {
+        float x = vertices[2 * selected];
+        float y = vertices[2 * selected + 1];
+        surface.fillCircle(x, y, 2 * style.toPixels(style.getMarkerRadius()),
+                style.getStrokeColor());
+
+        // A hard shadow; blurring it would cost more than the rest of the chart.
+        FlagLayout.outline(x + SHADOW_OFFSET, y + SHADOW_OFFSET, flag.getPoleHeight(),
+                flag.getHeight(), flag.getWidth(), outline);
+        surface.fillPolygon(outline, FlagLayout.OUTLINE_SIZE / 2, SHADOW_COLOR);
+        flag.outline(outline);
+        surface.fillPolygon(outline, FlagLayout.OUTLINE_SIZE / 2, style.getFlagColor());
+        surface.drawPolygon(outline, FlagLayout.OUTLINE_SIZE / 2, FLAG_TEXT_COLOR,
+                style.toPixels(2));
+        surface.drawText(flagText, flag.getTextX(), flag.getTextY(), FLAG_TEXT_COLOR);
+    }
+}
@@ -0,0 +1,208 @@
+package com.rfe.graphcomponent.headless;
+
+import com.rfe.graphcomponent.core.ChartLayout;
+
+/**
+ * Colors and sizes of an offscreen chart. The defaults match the default plot style of the
+ * view. Sizes are given in dp and sp as on Android and scaled by {@link #setDensity}.
+ * <p>
+ * A style may be shared by renderers on several threads as long as it is not modified while
+ * they render.
+ */
+public final class ChartStyle {
+
+    private int backgroundColor = 0xff5a5a5a;
+    private int areaColor = 0xff818181;
+    private int gridColor = 0xffdcdcdc;
+    private int strokeColor = 0xffffac00;
+    private int textColor = 0xffdcdcdc;
+    private int flagColor = 0xffdcdcdc;
+    private String unit = "km/h";
+    private String xUnit = "";
+    private boolean xAxisVisible = false;
+    private boolean markersVisible = true;
+    // NaN while the limit follows the marker size in pixels.
+    private float maxMarkerDensity = Float.NaN;
+    private float strokeWidth = 3;
+    private float markerRadius = 5;
+    private float textSize = 16;
+    private float density = 1;
+    private int seekBarHeight = 75;
+
+    /**
+     * Colors are ARGB, as on Android.
+     */
+    public ChartStyle setBackgroundColor(int color) {
+        backgroundColor = color;
+        return this;
+    }
+
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * Sets the fill below the line; a transparent color leaves the area out.
+     */
+    public ChartStyle setAreaColor(int color) {
+        areaColor = color;
+        return this;
+    }
+
+    public int getAreaColor() {
+        return areaColor;
+    }
+
+    public ChartStyle setGridColor(int color) {
+        gridColor = color;
+        return this;
+    }
+
+    public int getGridColor() {
+        return gridColor;
+    }
+
+    public ChartStyle setStrokeColor(int color) {
+        strokeColor = color;
+        return this;
+    }
+
+    public int getStrokeColor() {
+        return strokeColor;
+    }
+
+    public ChartStyle setTextColor(int color) {
+        textColor = color;
+        return this;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public ChartStyle setFlagColor(int color) {
+        flagColor = color;
+        return this;
+    }
+
+    public int getFlagColor() {
+        return flagColor;
+    }
+
+    /**
+     * Sets the unit of y values, e.g. "km/h"; may be null.
+     */
+    public ChartStyle setUnit(String unit) {
+        this.unit = unit != null ? unit : "";
+        return this;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Shows or hides vertical grid lines and labels at the x axis ticks.
+     *
+     * @param unit the unit of x values, e.g. "s" for time or "km" for distance; may be null
+     */
+    public ChartStyle setXAxisTicks(boolean visible, String unit) {
+        xAxisVisible = visible;
+        xUnit = unit != null ? unit : "";
+        return this;
+    }
+
+    public boolean isXAxisVisible() {
+        return xAxisVisible;
+    }
+
+    public String getXUnit() {
+        return xUnit;
+    }
+
+    public ChartStyle setMarkersVisible(boolean visible) {
+        markersVisible = visible;
+        return this;
+    }
+
+    public boolean isMarkersVisible() {
+        return markersVisible;
+    }
+
+    /**
+     * Sets how many markers per pixel of plot width a chart may show before they are left
+     * out, as in the view. NaN, the default, allows one marker per marker diameter.
+     */
+    public ChartStyle setMaxMarkerDensity(float markersPerPixel) {
+        maxMarkerDensity = markersPerPixel;
+        return this;
+    }
+
+    public float getMaxMarkerDensity() {
+        return Float.isNaN(maxMarkerDensity)
+                ? ChartLayout.getDefaultMaxMarkerDensity(toPixels(markerRadius))
+                : maxMarkerDensity;
+    }
+
+    /**
+     * Sets the width of the line in dp.
+     */
+    public ChartStyle setStrokeWidth(float dp) {
+        strokeWidth = dp;
+        return this;
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public ChartStyle setMarkerRadius(float dp) {
+        markerRadius = dp;
+        return this;
+    }
+
+    public float getMarkerRadius() {
+        return markerRadius;
+    }
+
+    /**
+     * Sets the size of labels in sp.
+     */
+    public ChartStyle setTextSize(float sp) {
+        textSize = sp;
+        return this;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    /**
+     * Sets the pixels per dp and sp, e.g. 2 for an image matching an xhdpi screen.
+     */
+    public ChartStyle setDensity(float density) {
+        this.density = density;
+        return this;
+    }
+
+    public float getDensity() {
+        return density;
+    }
+
+    /**
+     * Sets the height in pixels of the seek bar the view shows above the plot. Offscreen
+     * charts keep its space free, so they are laid out like the view.
+     */
+    public ChartStyle setSeekBarHeight(int pixels) {
+        seekBarHeight = pixels;
+        return this;
+    }
+
+    public int getSeekBarHeight() {
+        return seekBarHeight;
+    }
+
+    float toPixels(float dp) {
+        return dp * density;
+    }
+}
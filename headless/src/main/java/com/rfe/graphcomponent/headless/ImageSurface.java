@@ -0,0 +1,159 @@
+package com.rfe.graphcomponent.headless;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws into a {@link BufferedImage} through Java2D. Shapes are reused between calls, so
+ * drawing a chart allocates little besides colors and strokes.
+ */
+final class ImageSurface implements Surface {
+
+    private final Graphics2D graphics;
+    private final Path2D.Float path = new Path2D.Float();
+    private final Line2D.Float line = new Line2D.Float();
+    private final Ellipse2D.Float ellipse = new Ellipse2D.Float();
+    private final Rectangle2D.Float rect = new Rectangle2D.Float();
+    private final int width, height;
+
+    ImageSurface(BufferedImage image, Font font) {
+        graphics = image.createGraphics();
+        graphics.setFont(font);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+                RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                RenderingHints.VALUE_STROKE_PURE);
+        width = image.getWidth();
+        height = image.getHeight();
+    }
+
+    void dispose() {
+        graphics.dispose();
+    }
+
+    private void setAntiAlias(boolean antiAlias) {
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antiAlias
+                ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    private void setColor(int color) {
+        graphics.setColor(new Color(color, true));
+    }
+
+    private void buildPolyline(float[] vertices, int count) {
+        path.reset();
+        path.moveTo(vertices[0], vertices[1]);
+        for (int i = 1; i < count; i++)
+            path.lineTo(vertices[2 * i], vertices[2 * i + 1]);
+    }
+
+    @Override
+    public void fill(int color) {
+        setAntiAlias(false);
+        graphics.setBackground(new Color(color, true));
+        graphics.clearRect(0, 0, width, height);
+    }
+
+    @Override
+    public void clip(float left, float top, float right, float bottom) {
+        rect.setRect(left, top, right - left, bottom - top);
+        graphics.setClip(rect);
+    }
+
+    @Override
+    public void unclip() {
+        graphics.setClip(null);
+    }
+
+    @Override
+    public void fillArea(float[] vertices, int count, float baseline, int color) {
+        if (count == 0)
+            return;
+        path.reset();
+        path.moveTo(vertices[0], baseline);
+        for (int i = 0; i < count; i++)
+            path.lineTo(vertices[2 * i], vertices[2 * i + 1]);
+        path.lineTo(vertices[2 * (count - 1)], baseline);
+        path.closePath();
+        setAntiAlias(false);
+        setColor(color);
+        graphics.fill(path);
+    }
+
+    @Override
+    public void drawPolyline(float[] vertices, int count, int color, float width) {
+        if (count < 2)
+            return;
+        buildPolyline(vertices, count);
+        setAntiAlias(true);
+        setColor(color);
+        graphics.setStroke(new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND));
+        graphics.draw(path);
+    }
+
+    @Override
+    public void drawLines(float[] lines, int count, int color, float width) {
+        setAntiAlias(false);
+        setColor(color);
+        graphics.setStroke(new BasicStroke(width));
+        for (int i = 0; i < count; i++) {
+            line.setLine(lines[4 * i], lines[4 * i + 1], lines[4 * i + 2], lines[4 * i + 3]);
+            graphics.draw(line);
+        }
+    }
+
+    @Override
+    public void drawMarkers(float[] vertices, int count, float radius, int color) {
+        setAntiAlias(true);
+        setColor(color);
+        for (int i = 0; i < count; i++) {
+            ellipse.setFrame(vertices[2 * i] - radius, vertices[2 * i + 1] - radius,
+                    2 * radius, 2 * radius);
+            graphics.fill(ellipse);
+        }
+    }
+
+    @Override
+    public void fillCircle(float x, float y, float radius, int color) {
+        setAntiAlias(true);
+        setColor(color);
+        ellipse.setFrame(x - radius, y - radius, 2 * radius, 2 * radius);
+        graphics.fill(ellipse);
+    }
+
+    @Override
+    public void fillPolygon(float[] vertices, int count, int color) {
+        buildPolyline(vertices, count);
+        path.closePath();
+        setAntiAlias(true);
+        setColor(color);
+        graphics.fill(path);
+    }
+
+    @Override
+    public void drawPolygon(float[] vertices, int count, int color, float width) {
+        buildPolyline(vertices, count);
+        path.closePath();
+        setAntiAlias(true);
+        setColor(color);
+        graphics.setStroke(new BasicStroke(width));
+        graphics.draw(path);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, int color) {
+        setAntiAlias(true);
+        setColor(color);
+        graphics.drawString(text, x, y);
+    }
+}
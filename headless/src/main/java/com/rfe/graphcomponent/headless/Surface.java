@@ -0,0 +1,42 @@
+package com.rfe.graphcomponent.headless;
+
+/**
+ * What {@link ChartRenderer} draws on: the few primitives the view draws with, in pixel
+ * coordinates. Colors are ARGB. Vertex arrays hold x/y pairs and may be longer than used.
+ */
+interface Surface {
+
+    void fill(int color);
+
+    /**
+     * Restricts drawing to a rectangle until {@link #unclip()}.
+     */
+    void clip(float left, float top, float right, float bottom);
+
+    void unclip();
+
+    /**
+     * Fills the area between the polyline through {@code count} vertices and {@code baseline}.
+     */
+    void fillArea(float[] vertices, int count, float baseline, int color);
+
+    void drawPolyline(float[] vertices, int count, int color, float width);
+
+    /**
+     * Draws {@code count} segments of x0, y0, x1, y1 each, without anti-aliasing.
+     */
+    void drawLines(float[] lines, int count, int color, float width);
+
+    void drawMarkers(float[] vertices, int count, float radius, int color);
+
+    void fillCircle(float x, float y, float radius, int color);
+
+    void fillPolygon(float[] vertices, int count, int color);
+
+    void drawPolygon(float[] vertices, int count, int color, float width);
+
+    /**
+     * Draws text with its left end of the baseline at {@code (x, y)}.
+     */
+    void drawText(String text, float x, float y, int color);
+}
@@ -0,0 +1,277 @@
+package com.rfe.graphcomponent.headless;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams an SVG document to a writer, one element per call. Coordinates are written with one
+ * fraction digit through a reusable buffer instead of {@link String#format}, which dominates
+ * the cost of large paths otherwise. Write failures are kept and thrown by {@link #end()}, as
+ * {@link Surface} methods cannot throw them.
+ */
+final class SvgSurface implements Surface {
+
+    private final StringBuilder buffer;
+    private final Writer writer;
+    private final int width, height;
+    private final float textSize;
+    private boolean clipped = false;
+    private int clipCount = 0;
+    private IOException error = null;
+
+    /**
+     * @param buffer a builder to reuse, cleared first
+     */
+    SvgSurface(StringBuilder buffer, Writer writer, int width, int height, float textSize) {
+        this.buffer = buffer;
+        this.writer = writer;
+        this.width = width;
+        this.height = height;
+        this.textSize = textSize;
+        buffer.setLength(0);
+    }
+
+    void begin() {
+        buffer.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height).append("\" viewBox=\"0 0 ")
+                .append(width).append(' ').append(height).append("\">\n");
+        flush();
+    }
+
+    /**
+     * Closes the document.
+     *
+     * @throws IOException the first error writing any part of it
+     */
+    void end() throws IOException {
+        unclip();
+        buffer.append("</svg>\n");
+        flush();
+        if (error != null)
+            throw error;
+        writer.flush();
+    }
+
+    private void flush() {
+        if (error == null) {
+            try {
+                writer.append(buffer);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        buffer.setLength(0);
+    }
+
+    private void appendNumber(float value) {
+        int tenths = Math.round(value * 10);
+        if (tenths < 0) {
+            buffer.append('-');
+            tenths = -tenths;
+        }
+        buffer.append(tenths / 10);
+        if (tenths % 10 != 0)
+            buffer.append('.').append(tenths % 10);
+    }
+
+    private void appendPoint(float x, float y) {
+        appendNumber(x);
+        buffer.append(',');
+        appendNumber(y);
+    }
+
+    private void appendColor(String attribute, int color) {
+        buffer.append(' ').append(attribute).append("=\"#");
+        String rgb = Integer.toHexString(color & 0xffffff);
+        for (int i = rgb.length(); i < 6; i++)
+            buffer.append('0');
+        buffer.append(rgb).append('"');
+        int alpha = color >>> 24;
+        if (alpha != 0xff) {
+            buffer.append(' ').append(attribute).append("-opacity=\"");
+            appendNumber(alpha / 255f);
+            buffer.append('"');
+        }
+    }
+
+    private void appendPoints(float[] vertices, int count) {
+        buffer.append(" points=\"");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                buffer.append(' ');
+            appendPoint(vertices[2 * i], vertices[2 * i + 1]);
+        }
+        buffer.append('"');
+    }
+
+    private void appendStrokeWidth(float width) {
+        buffer.append(" stroke-width=\"");
+        appendNumber(width);
+        buffer.append('"');
+    }
+
+    private void appendEscaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '&')
+                buffer.append("&amp;");
+            else if (c == '<')
+                buffer.append("&lt;");
+            else if (c == '>')
+                buffer.append("&gt;");
+            else
+                buffer.append(c);
+        }
+    }
+
+    @Override
+    public void fill(int color) {
+        buffer.append("<rect width=\"100%\" height=\"100%\"");
+        appendColor("fill", color);
+        buffer.append("/>\n");
+        flush();
+    }
+
+    @Override
+    public void clip(float left, float top, float right, float bottom) {
+        unclip();
+        String id = "clip" + clipCount++;
+        buffer.append("<clipPath id=\"").append(id).append("\"><rect x=\"");
+        appendNumber(left);
+        buffer.append("\" y=\"");
+        appendNumber(top);
+        buffer.append("\" width=\"");
+        appendNumber(right - left);
+        buffer.append("\" height=\"");
+        appendNumber(bottom - top);
+        buffer.append("\"/></clipPath>\n<g clip-path=\"url(#").append(id).append(")\">\n");
+        clipped = true;
+        flush();
+    }
+
+    @Override
+    public void unclip() {
+        if (!clipped)
+            return;
+        buffer.append("</g>\n");
+        clipped = false;
+        flush();
+    }
+
+    @Override
+    public void fillArea(float[] vertices, int count, float baseline, int color) {
+        if (count == 0)
+            return;
+        buffer.append("<path d=\"M");
+        appendPoint(vertices[0], baseline);
+        for (int i = 0; i < count; i++) {
+            buffer.append(" L");
+            appendPoint(vertices[2 * i], vertices[2 * i + 1]);
+        }
+        buffer.append(" L");
+        appendPoint(vertices[2 * (count - 1)], baseline);
+        buffer.append(" Z\"");
+        appendColor("fill", color);
+        buffer.append(" shape-rendering=\"crispEdges\"/>\n");
+        flush();
+    }
+
+    @Override
+    public void drawPolyline(float[] vertices, int count, int color, float width) {
+        if (count < 2)
+            return;
+        buffer.append("<polyline");
+        appendPoints(vertices, count);
+        buffer.append(" fill=\"none\"");
+        appendColor("stroke", color);
+        appendStrokeWidth(width);
+        buffer.append(" stroke-linejoin=\"round\"/>\n");
+        flush();
+    }
+
+    @Override
+    public void drawLines(float[] lines, int count, int color, float width) {
+        if (count == 0)
+            return;
+        buffer.append("<path d=\"");
+        for (int i = 0; i < count; i++) {
+            buffer.append(i > 0 ? " M" : "M");
+            appendPoint(lines[4 * i], lines[4 * i + 1]);
+            buffer.append(" L");
+            appendPoint(lines[4 * i + 2], lines[4 * i + 3]);
+        }
+        buffer.append('"');
+        appendColor("stroke", color);
+        appendStrokeWidth(width);
+        buffer.append(" shape-rendering=\"crispEdges\"/>\n");
+        flush();
+    }
+
+    @Override
+    public void drawMarkers(float[] vertices, int count, float radius, int color) {
+        if (count == 0)
+            return;
+        // Zero-length segments with round caps are dots, as with drawPoints on Android.
+        buffer.append("<path d=\"");
+        for (int i = 0; i < count; i++) {
+            buffer.append(i > 0 ? " M" : "M");
+            appendPoint(vertices[2 * i], vertices[2 * i + 1]);
+            buffer.append(" h0");
+        }
+        buffer.append('"');
+        appendColor("stroke", color);
+        appendStrokeWidth(2 * radius);
+        buffer.append(" stroke-linecap=\"round\"/>\n");
+        flush();
+    }
+
+    @Override
+    public void fillCircle(float x, float y, float radius, int color) {
+        buffer.append("<circle cx=\"");
+        appendNumber(x);
+        buffer.append("\" cy=\"");
+        appendNumber(y);
+        buffer.append("\" r=\"");
+        appendNumber(radius);
+        buffer.append('"');
+        appendColor("fill", color);
+        buffer.append("/>\n");
+        flush();
+    }
+
+    @Override
+    public void fillPolygon(float[] vertices, int count, int color) {
+        buffer.append("<polygon");
+        appendPoints(vertices, count);
+        appendColor("fill", color);
+        buffer.append("/>\n");
+        flush();
+    }
+
+    @Override
+    public void drawPolygon(float[] vertices, int count, int color, float width) {
+        buffer.append("<polygon");
+        appendPoints(vertices, count);
+        buffer.append(" fill=\"none\"");
+        appendColor("stroke", color);
+        appendStrokeWidth(width);
+        buffer.append("/>\n");
+        flush();
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, int color) {
+        buffer.append("<text x=\"");
+        appendNumber(x);
+        buffer.append("\" y=\"");
+        appendNumber(y);
+        buffer.append("\" font-family=\"sans-serif\" font-size=\"");
+        appendNumber(textSize);
+        buffer.append('"');
+        appendColor("fill", color);
+        buffer.append('>');
+        appendEscaped(text);
+        buffer.append("</text>\n");
+        flush();
+    }
+}
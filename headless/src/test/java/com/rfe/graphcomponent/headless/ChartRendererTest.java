@@ -0,0 +1,166 @@
+package com.rfe.graphcomponent.headless;
+
+import com.rfe.graphcomponent.core.AxisScale;
+import com.rfe.graphcomponent.core.ChartLayout;
+import com.rfe.graphcomponent.core.Decimator;
+import com.rfe.graphcomponent.core.GridLayout;
+import com.rfe.graphcomponent.core.SeriesStore;
+import com.rfe.graphcomponent.core.Viewport;
+
+import org.junit.Test;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChartRendererTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 400;
+
+    static {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    private static SeriesStore speedTrace(int count) {
+        Random random = new Random(3);
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        float speed = 60;
+        for (int i = 0; i < count; i++) {
+            speed = Math.max(0, speed + (random.nextFloat() - 0.5f) * 4);
+            xs[i] = i * 0.5f;
+            ys[i] = speed;
+        }
+        SeriesStore series = new SeriesStore();
+        series.setData(xs, ys, count);
+        series.sortByX();
+        series.buildIndex();
+        return series;
+    }
+
+    @Test
+    public void writesAnSvgDocument() throws Exception {
+        ChartRenderer renderer = new ChartRenderer(new ChartStyle());
+        StringWriter out = new StringWriter();
+        renderer.writeSvg(speedTrace(5000), WIDTH, HEIGHT, 100, out);
+        String svg = out.toString();
+
+        assertTrue(svg.startsWith("<svg "));
+        assertTrue(svg.contains("width=\"" + WIDTH + "\" height=\"" + HEIGHT + "\""));
+        assertTrue(svg.endsWith("</svg>\n"));
+        assertTrue(svg.contains("<polyline"));
+        assertTrue(svg.contains(" km/h</text>"));
+    }
+
+    @Test
+    public void writesAnEmptySeries() throws Exception {
+        ChartRenderer renderer = new ChartRenderer(new ChartStyle());
+        SeriesStore empty = new SeriesStore();
+        empty.setData(new float[0], new float[0], 0);
+        StringWriter out = new StringWriter();
+        renderer.writeSvg(empty, WIDTH, HEIGHT, Float.NaN, out);
+        assertTrue(out.toString().endsWith("</svg>\n"));
+    }
+
+    @Test
+    public void rendersTheLineIntoTheImage() {
+        ChartStyle style = new ChartStyle();
+        ChartRenderer renderer = new ChartRenderer(style);
+        BufferedImage image = renderer.render(speedTrace(5000), WIDTH, HEIGHT, Float.NaN);
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+
+        int stroke = style.getStrokeColor() & 0xffffff;
+        int strokePixels = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if ((image.getRGB(x, y) & 0xffffff) == stroke)
+                    strokePixels++;
+            }
+        }
+        assertTrue(strokePixels > WIDTH / 2);
+    }
+
+    /**
+     * Labels like the view's, measured in the renderer's font instead of an Android paint.
+     */
+    private static AxisScale.LabelStyle labelStyle(final String unit, float textSize) {
+        final Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(textSize);
+        final FontRenderContext context = new FontRenderContext(null, true, true);
+        return new AxisScale.LabelStyle() {
+            @Override
+            public String format(float value, int fractionDigits) {
+                return AxisScale.formatValue(value, fractionDigits, unit);
+            }
+
+            @Override
+            public float measure(String label) {
+                return (float) font.getStringBounds(label, context).getWidth();
+            }
+        };
+    }
+
+    /**
+     * Lays out the chart the way GraphComponent does for a series shown as a whole, from its
+     * y range, plot area, axes and grid down to the decimation width, and checks that the
+     * renderer arrived at the same layout.
+     */
+    @Test
+    public void layoutMatchesTheView() {
+        ChartStyle style = new ChartStyle().setDensity(2).setXAxisTicks(true, "s");
+        SeriesStore series = speedTrace(20000);
+        ChartRenderer renderer = new ChartRenderer(style);
+        renderer.setDecimationMode(Decimator.Mode.LTTB);
+        renderer.render(series, WIDTH, HEIGHT, Float.NaN);
+
+        float textSize = style.getTextSize() * style.getDensity();
+        int barHeight = style.getSeekBarHeight();
+        AxisScale yAxis = new AxisScale(true);
+        yAxis.setLabelStyle(labelStyle(style.getUnit(), textSize));
+        yAxis.update(series.getMinY(), series.getMaxY());
+        AxisScale xAxis = new AxisScale(false);
+        xAxis.setLabelStyle(labelStyle(style.getXUnit(), textSize));
+        float minX = series.getX(0);
+        float maxX = series.getX(series.size() - 1);
+        Viewport viewport = new Viewport();
+        ChartLayout.placePlotArea(viewport, WIDTH, HEIGHT, 0, 0, 0, barHeight, textSize);
+        viewport.setDataRange(minX, maxX, yAxis.getLowerBound(), yAxis.getUpperBound());
+        xAxis.update(minX, maxX);
+        GridLayout grid = new GridLayout();
+        grid.layout(viewport, yAxis, xAxis);
+        Decimator decimator = new Decimator();
+        decimator.setMode(Decimator.Mode.LTTB);
+        decimator.update(series, 0, series.size(), WIDTH - barHeight);
+
+        Viewport rendered = renderer.getViewport();
+        assertEquals(viewport.getLeft(), rendered.getLeft(), 0);
+        assertEquals(viewport.getTop(), rendered.getTop(), 0);
+        assertEquals(viewport.getWidth(), rendered.getWidth(), 0);
+        assertEquals(viewport.getHeight(), rendered.getHeight(), 0);
+        assertEquals(viewport.getLowerY(), rendered.getLowerY(), 0);
+        assertEquals(viewport.getUpperY(), rendered.getUpperY(), 0);
+
+        GridLayout renderedGrid = renderer.getGrid();
+        assertEquals(grid.getLineCount(), renderedGrid.getLineCount());
+        assertArrayEquals(Arrays.copyOf(grid.getLines(), 4 * grid.getLineCount()),
+                Arrays.copyOf(renderedGrid.getLines(), 4 * grid.getLineCount()), 0);
+        assertEquals(grid.getYLabelCount(), renderedGrid.getYLabelCount());
+        assertEquals(grid.getXLabelCount(), renderedGrid.getXLabelCount());
+        assertTrue(grid.getXLabelCount() > 0);
+        for (int i = 0; i < grid.getXLabelCount(); i++)
+            assertEquals(grid.getXLabelTick(i), renderedGrid.getXLabelTick(i));
+
+        Decimator renderedDecimator = renderer.getDecimator();
+        assertEquals(decimator.size(), renderedDecimator.size());
+        for (int i = 0; i < decimator.size(); i++)
+            assertEquals(decimator.getIndex(i), renderedDecimator.getIndex(i));
+    }
+}